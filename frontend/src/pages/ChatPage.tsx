@@ -10,6 +10,28 @@ interface Message {
     image?: File;
 }
 
+// Minimal Server-Sent Events reader for POST responses (EventSource only supports GET)
+const readEventStream = async (body: ReadableStream<Uint8Array>, onData: (data: string) => void) => {
+    const reader = body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    while (true) {
+        const { done, value } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+        let boundary;
+        while ((boundary = buffer.indexOf('\n\n')) !== -1) {
+            const event = buffer.slice(0, boundary);
+            buffer = buffer.slice(boundary + 2);
+            const data = event.split('\n')
+                .filter(line => line.startsWith('data:'))
+                .map(line => line.slice(5))
+                .join('\n');
+            if (data) onData(data);
+        }
+    }
+};
+
 export const ChatPage: React.FC = () => {
     const [messages, setMessages] = useState<Message[]>([
         { role: 'assistant', content: 'Hello! I am your library concierge. Ask me about any book, or share a cover image for analysis.' }
@@ -17,6 +39,8 @@ export const ChatPage: React.FC = () => {
     const [input, setInput] = useState('');
     const [selectedFile, setSelectedFile] = useState<File | null>(null);
     const [loading, setLoading] = useState(false);
+    const [streaming, setStreaming] = useState(false);
+    const conversationIdRef = useRef<string | null>(null);
     const fileInputRef = useRef<HTMLInputElement>(null);
     const messagesEndRef = useRef<HTMLDivElement>(null);
 
@@ -28,7 +52,7 @@ export const ChatPage: React.FC = () => {
 
     const handleSend = async (e: React.FormEvent) => {
         e.preventDefault();
-        if ((!input.trim() && !selectedFile) || loading) return;
+        if ((!input.trim() && !selectedFile) || loading || streaming) return;
 
         const userMessage = input;
         const currentFile = selectedFile; // Capture for state closure
@@ -49,16 +73,30 @@ export const ChatPage: React.FC = () => {
         if (currentFile) {
             formData.append('file', currentFile);
         }
+        if (conversationIdRef.current) {
+            formData.append('conversationId', conversationIdRef.current);
+        }
 
         try {
-            const response = await fetch('/api/books/chat', {
+            const response = await fetch('/api/books/chat/stream', {
                 method: 'POST',
                 body: formData,
             });
 
-            if (response.ok) {
-                const text = await response.text();
-                setMessages(prev => [...prev, { role: 'assistant', content: text, queryContext: userMessage }]);
+            if (response.ok && response.body) {
+                conversationIdRef.current = response.headers.get('X-Conversation-Id') ?? conversationIdRef.current;
+                // Show the reply as it streams in instead of waiting for the full completion
+                setMessages(prev => [...prev, { role: 'assistant', content: '', queryContext: userMessage }]);
+                setLoading(false);
+                setStreaming(true);
+                await readEventStream(response.body, token => {
+                    setMessages(prev => {
+                        const updated = [...prev];
+                        const last = updated[updated.length - 1];
+                        updated[updated.length - 1] = { ...last, content: last.content + token };
+                        return updated;
+                    });
+                });
             } else {
                 setMessages(prev => [...prev, { role: 'assistant', content: 'I apologize, but I encountered a system error.' }]);
             }
@@ -67,6 +105,7 @@ export const ChatPage: React.FC = () => {
             setMessages(prev => [...prev, { role: 'assistant', content: 'Network connection failed. Please check your internet.' }]);
         } finally {
             setLoading(false);
+            setStreaming(false);
         }
     };
 
@@ -163,7 +202,7 @@ export const ChatPage: React.FC = () => {
                         type="button"
                         className={`btn-attach ${selectedFile ? 'has-file' : ''}`}
                         onClick={() => fileInputRef.current?.click()}
-                        disabled={loading}
+                        disabled={loading || streaming}
                     >
                         <Paperclip size={20} />
                     </button>
@@ -174,13 +213,13 @@ export const ChatPage: React.FC = () => {
                         placeholder="Ask about a book or upload a cover..."
                         value={input}
                         onChange={(e) => setInput(e.target.value)}
-                        disabled={loading}
+                        disabled={loading || streaming}
                     />
 
                     <button
                         type="submit"
                         className="btn-msg-send"
-                        disabled={loading || (!input.trim() && !selectedFile)}
+                        disabled={loading || streaming || (!input.trim() && !selectedFile)}
                     >
                         <Send size={18} />
                     </button>
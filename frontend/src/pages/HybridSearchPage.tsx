@@ -103,6 +103,9 @@ export function HybridSearchPage() {
                             </div>
                         </div>
                         <div className="scroll-area">
+                            {results.degraded && (
+                                <div className="empty-state">Semantic search is temporarily unavailable; showing keyword matches only.</div>
+                            )}
                             {results.vectorResults.map((result) => (
                                 <div key={result.book.id} className="mini-card">
                                     <img src={result.book.imageUrl || 'https://placehold.co/100x150'} alt={result.book.title} />
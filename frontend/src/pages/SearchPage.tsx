@@ -56,7 +56,8 @@ export const SearchPage: React.FC = () => {
             const response = await fetch(`/api/books/search/compare?q=${encodeURIComponent(query)}&limit=10`);
             if (response.ok) {
                 const data = await response.json();
-                const results = data.semantic || [];
+                // Semantic search is unavailable while the embedding provider is down
+                const results = (data.degraded ? data.keyword : data.semantic) || [];
                 const mappedBooks = results.map((r: any) => r.book);
                 setBooks(mappedBooks);
             }
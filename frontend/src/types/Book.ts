@@ -19,4 +19,5 @@ export interface HybridSearchResponse {
     vectorResults: SearchResult[];
     keywordResults: SearchResult[];
     hybridResults: SearchResult[];
+    degraded: boolean;
 }
@@ -0,0 +1,428 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for the app running with the {@code loadtest}
+ * profile (fake embedding and chat models, local Postgres+pgvector).
+ * <p>
+ * Requests are started at a fixed arrival rate whether or not earlier ones
+ * have finished, and latency is measured from the scheduled start, so a
+ * saturated server shows up as growing latency instead of a quietly lower
+ * request rate. Each request runs on its own virtual thread.
+ * </p>
+ * <p>
+ * Before the run the catalog is seeded with {@code --seed-books} books and a
+ * course, a book's full text and a debate session are set up, so every
+ * scenario hits real data. At the end, throughput and latency percentiles are
+ * printed per scenario; for streaming scenarios the time to first byte too.
+ * </p>
+ *
+ * <pre>
+ * java scripts/loadtest/LoadTestRunner.java --rate=20 --duration=60 \
+ *     --mix=hybrid:4,compare:3,library-chat:1,course-chat-stream:1,upload:1
+ * </pre>
+ */
+public class LoadTestRunner {
+
+    private static final String[] WORDS = { "whale", "captain", "sea", "voyage", "island", "war", "peace", "love",
+            "family", "detective", "murder", "mystery", "dragon", "magic", "kingdom", "robot", "future", "space",
+            "planet", "revolution", "history", "empire", "garden", "city", "poverty", "wealth", "journey",
+            "friendship", "betrayal", "revenge", "science", "philosophy", "ghost", "castle", "river", "mountain",
+            "winter", "letters", "school", "orphan" };
+    private static final String[] GENRES = { "Fiction", "Mystery", "Science Fiction", "Fantasy", "History",
+            "Philosophy", "Adventure" };
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("base-url", "http://localhost:8080");
+        DEFAULTS.put("rate", "10");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("seed-books", "200");
+        DEFAULTS.put("upload-kb", "32");
+        DEFAULTS.put("timeout", "120");
+        DEFAULTS.put("mix", "hybrid:4,compare:3,library-chat:1,book-chat:1,course-chat:1,debate-turn:1,upload:1");
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final int uploadKb;
+    private final Random random = new Random(42);
+
+    private String bookId;
+    private String bookTitle;
+    private String courseId;
+    private String debateSessionId;
+
+    LoadTestRunner(String baseUrl, Duration timeout, int uploadKb) {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.uploadKb = uploadKb;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Usage: java LoadTestRunner.java [--name=value ...]; options and defaults:");
+                DEFAULTS.forEach((name, value) -> System.err.println("  --" + name + "=" + value));
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadTestRunner runner = new LoadTestRunner(options.get("base-url"),
+                Duration.ofSeconds(Long.parseLong(options.get("timeout"))),
+                Integer.parseInt(options.get("upload-kb")));
+        Map<String, Integer> mix = parseMix(options.get("mix"));
+        double rate = Double.parseDouble(options.get("rate"));
+
+        runner.seed(Integer.parseInt(options.get("seed-books")));
+
+        int warmup = Integer.parseInt(options.get("warmup"));
+        if (warmup > 0) {
+            System.out.printf("Warm-up: %d s at %.1f req/s%n", warmup, rate);
+            runner.run(mix, rate, Duration.ofSeconds(warmup));
+        }
+        int duration = Integer.parseInt(options.get("duration"));
+        System.out.printf("Measuring: %d s at %.1f req/s, mix %s%n", duration, rate, mix);
+        Map<String, Stats> results = runner.run(mix, rate, Duration.ofSeconds(duration));
+        report(results, duration);
+    }
+
+    // --- Setup ---
+
+    void seed(int books) throws Exception {
+        System.out.printf("Seeding %d books, a course, a book text and a debate session...%n", books);
+        for (int i = 0; i < books; i++) {
+            String id = UUID.randomUUID().toString();
+            String title = capitalize(words(3));
+            String json = """
+                    {"id":"%s","title":"%s","author":"%s","summary":"%s","genre":"%s",\
+                    "publicationYear":%d,"imageUrl":"https://example.org/covers/%d.jpg"}"""
+                    .formatted(id, title, capitalize(words(2)), words(60), GENRES[i % GENRES.length],
+                            1800 + random.nextInt(220), i);
+            expectOk(send(post("/api/books", "application/json", HttpRequest.BodyPublishers.ofString(json))));
+            if (i == 0) {
+                bookId = id;
+                bookTitle = title;
+            }
+        }
+
+        Multipart bookText = Multipart.file("file", "book.txt", chapters(12, uploadKb * 4));
+        expectOk(send(post("/api/books/" + bookId + "/upload", bookText.contentType(), bookText.publisher())));
+
+        String course = expectOk(send(post("/api/study-room/courses", "application/json",
+                HttpRequest.BodyPublishers.ofString("{\"name\":\"Load test\",\"description\":\"" + words(12) + "\"}"))));
+        Matcher matcher = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"").matcher(course);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No course id in " + course);
+        }
+        courseId = matcher.group(1);
+        Multipart material = Multipart.file("file", "notes.txt", chapters(4, uploadKb));
+        expectOk(send(post("/api/study-room/courses/" + courseId + "/materials", material.contentType(),
+                material.publisher())));
+
+        debateSessionId = UUID.randomUUID().toString();
+        for (String label : List.of("A", "B")) {
+            Multipart side = Multipart.file("file", "side-" + label + ".txt", chapters(3, uploadKb))
+                    .field("sessionId", debateSessionId)
+                    .field("label", label);
+            expectOk(send(post("/api/debate/upload", side.contentType(), side.publisher())));
+        }
+    }
+
+    // --- Scenarios ---
+
+    private HttpRequest request(String scenario) {
+        return switch (scenario) {
+            case "hybrid" -> get("/api/hybrid-search?query=" + encode(words(3)));
+            case "compare" -> get("/api/books/search/compare?limit=5&q=" + encode(words(3)));
+            case "library-chat", "library-chat-stream" -> {
+                Multipart form = new Multipart().field("query", "Recommend a book about " + words(3));
+                yield post(scenario.endsWith("-stream") ? "/api/books/chat/stream" : "/api/books/chat",
+                        form.contentType(), form.publisher());
+            }
+            case "book-chat", "book-chat-stream" -> post("/api/books/" + bookId + "/chat/content"
+                    + (scenario.endsWith("-stream") ? "/stream" : "") + "?title=" + encode(bookTitle),
+                    "application/json", json("{\"message\":\"What does the book say about " + words(2) + "?\"}"));
+            case "course-chat", "course-chat-stream" -> post("/api/study-room/courses/" + courseId + "/chat"
+                    + (scenario.endsWith("-stream") ? "/stream" : ""),
+                    "application/json", json("{\"message\":\"Explain " + words(3) + "\"}"));
+            case "debate-turn", "debate-turn-stream" -> post("/api/debate/turn"
+                    + (scenario.endsWith("-stream") ? "/stream" : ""), "application/json",
+                    json("{\"sessionId\":\"" + debateSessionId + "\",\"topic\":\"Is " + words(1)
+                            + " better than " + words(1) + "?\",\"history\":[]}"));
+            case "upload" -> {
+                Multipart form = Multipart.file("file", "material-" + UUID.randomUUID() + ".txt",
+                        chapters(2, uploadKb));
+                yield post("/api/study-room/courses/" + courseId + "/materials", form.contentType(),
+                        form.publisher());
+            }
+            case "debate-upload" -> {
+                Multipart form = Multipart.file("file", "side.txt", chapters(2, uploadKb))
+                        .field("label", random.nextBoolean() ? "A" : "B");
+                yield post("/api/debate/upload", form.contentType(), form.publisher());
+            }
+            case "book-upload" -> {
+                Multipart form = Multipart.file("file", "book.txt", chapters(6, uploadKb));
+                yield post("/api/books/" + bookId + "/upload", form.contentType(), form.publisher());
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    // --- Open-loop driver ---
+
+    Map<String, Stats> run(Map<String, Integer> mix, double rate, Duration duration) throws InterruptedException {
+        List<String> wheel = new ArrayList<>();
+        mix.forEach((scenario, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(scenario);
+            }
+        });
+        // Filled before any request starts, only read afterwards
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        mix.keySet().forEach(scenario -> stats.put(scenario, new Stats()));
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0;; i++) {
+                long scheduled = start + i * intervalNanos;
+                if (scheduled >= end) {
+                    break;
+                }
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String scenario = wheel.get(random.nextInt(wheel.size()));
+                HttpRequest request = request(scenario);
+                executor.submit(() -> execute(request, scheduled, stats.get(scenario)));
+            }
+            // Closing the executor waits for in-flight requests
+        }
+        return stats;
+    }
+
+    private void execute(HttpRequest request, long scheduled, Stats stats) {
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long firstByte;
+            try (InputStream body = response.body()) {
+                int first = body.read();
+                firstByte = System.nanoTime() - scheduled;
+                if (first != -1) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            stats.record(System.nanoTime() - scheduled, firstByte, response.statusCode());
+        } catch (IOException e) {
+            stats.failure(e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Reporting ---
+
+    static final class Stats {
+        private final List<Long> latencies = new ArrayList<>();
+        private final List<Long> firstBytes = new ArrayList<>();
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+
+        synchronized void record(long latency, long firstByte, int status) {
+            if (status >= 200 && status < 300) {
+                latencies.add(latency);
+                firstBytes.add(firstByte);
+            } else {
+                errors.merge("HTTP " + status, 1, Integer::sum);
+            }
+        }
+
+        synchronized void failure(String reason) {
+            errors.merge(reason, 1, Integer::sum);
+        }
+    }
+
+    static void report(Map<String, Stats> results, int durationSeconds) {
+        System.out.println();
+        System.out.printf("%-20s %7s %7s %8s %9s %9s %9s %9s %9s %9s%n", "scenario", "ok", "errors", "req/s",
+                "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms", "ttfb p50");
+        List<Long> all = new ArrayList<>();
+        int allErrors = 0;
+        for (Map.Entry<String, Stats> entry : results.entrySet()) {
+            Stats stats = entry.getValue();
+            long[] latencies = sorted(stats.latencies);
+            long[] firstBytes = sorted(stats.firstBytes);
+            int errors = stats.errors.values().stream().mapToInt(Integer::intValue).sum();
+            all.addAll(stats.latencies);
+            allErrors += errors;
+            printRow(entry.getKey(), latencies, errors, durationSeconds,
+                    entry.getKey().endsWith("-stream") ? millis(percentile(firstBytes, 50)) : "-");
+            if (!stats.errors.isEmpty()) {
+                System.out.println("    " + stats.errors);
+            }
+        }
+        printRow("total", sorted(all), allErrors, durationSeconds, "-");
+    }
+
+    private static void printRow(String name, long[] latencies, int errors, int durationSeconds, String ttfb) {
+        System.out.printf("%-20s %7d %7d %8.1f %9s %9s %9s %9s %9s %9s%n", name, latencies.length, errors,
+                (double) latencies.length / durationSeconds, millis(percentile(latencies, 50)),
+                millis(percentile(latencies, 90)), millis(percentile(latencies, 95)),
+                millis(percentile(latencies, 99)), millis(percentile(latencies, 100)), ttfb);
+    }
+
+    private static long[] sorted(List<Long> values) {
+        long[] array = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    // --- Helpers ---
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(pair[0], pair.length > 1 ? Integer.parseInt(pair[1]) : 1);
+        }
+        return weights;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout).GET().build();
+    }
+
+    private HttpRequest post(String path, String contentType, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build();
+    }
+
+    private static HttpRequest.BodyPublisher json(String json) {
+        return HttpRequest.BodyPublishers.ofString(json);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String expectOk(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Setup request " + response.request().uri() + " failed with HTTP "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private String words(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /** Plain text with "CHAPTER n" headings, about {@code kilobytes} KB in total. */
+    private String chapters(int count, int kilobytes) {
+        StringBuilder text = new StringBuilder();
+        int perChapter = Math.max(1, kilobytes * 1024 / count);
+        for (int c = 1; c <= count; c++) {
+            text.append("CHAPTER ").append(c).append(". ").append(capitalize(words(3))).append("\n\n");
+            int chapterStart = text.length();
+            while (text.length() - chapterStart < perChapter) {
+                text.append(capitalize(words(12))).append(". ");
+            }
+            text.append("\n\n");
+        }
+        return text.toString();
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /** Minimal multipart/form-data body. */
+    static final class Multipart {
+        private final String boundary = "loadtest-" + UUID.randomUUID();
+        private final StringBuilder body = new StringBuilder();
+
+        static Multipart file(String name, String filename, String content) {
+            Multipart form = new Multipart();
+            form.body.append("--").append(form.boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(name)
+                    .append("\"; filename=\"").append(filename).append("\"\r\n")
+                    .append("Content-Type: text/plain\r\n\r\n")
+                    .append(content).append("\r\n");
+            return form;
+        }
+
+        Multipart field(String name, String value) {
+            body.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                    .append(value).append("\r\n");
+            return this;
+        }
+
+        String contentType() {
+            return "multipart/form-data; boundary=" + boundary;
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofString(body + "--" + boundary + "--\r\n", StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.springai.semanticbooksearchlive;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic inputs for the JMH benchmarks, shaped like what the
+ * repositories and the vector store return.
+ */
+public final class BenchmarkData {
+
+    public static final int DIMENSIONS = 1536;
+
+    private static final String[] WORDS = { "the", "whale", "captain", "sea", "voyage", "storm", "harpoon",
+            "ship", "crew", "ocean", "night", "letter", "garden", "war", "peace", "love", "memory", "river",
+            "mountain", "city", "revolution", "king", "queen", "detective", "murder", "journey", "dream" };
+    private static final String[] GENRES = { "Fiction", "Adventure", "Romance", "Mystery", "History" };
+
+    private BenchmarkData() {
+    }
+
+    /** Catalog documents with the metadata PgVectorStore returns, ids {@code prefix-0..n-1}. */
+    public static List<Document> catalogDocuments(String prefix, int count, long seed) {
+        Random random = new Random(seed);
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("id", prefix + "-" + i);
+            metadata.put("title", text(random, 4));
+            metadata.put("author", text(random, 2));
+            metadata.put("genre", GENRES[random.nextInt(GENRES.length)]);
+            metadata.put("publicationYear", 1800 + random.nextInt(220));
+            metadata.put("imageUrl", "https://example.org/covers/" + i + ".jpg");
+            metadata.put("distance", random.nextDouble());
+            documents.add(new Document(prefix + "-" + i, text(random, 60), metadata));
+        }
+        return documents;
+    }
+
+    /** Unit-length random vector. */
+    public static float[] vector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0.0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+
+    /** pgvector's text form, {@code [0.1,0.2,...]}. */
+    public static String vectorText(float[] vector) {
+        return Arrays.toString(vector).replace(" ", "");
+    }
+
+    /** Random prose of {@code words} words. */
+    public static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder(words * 7);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(i % 15 == 0 ? ". " : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+}
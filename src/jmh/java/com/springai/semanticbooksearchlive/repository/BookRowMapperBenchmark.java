@@ -0,0 +1,108 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import com.springai.semanticbooksearchlive.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookRepository}'s row mapper over {@code rows} in-memory rows, so only
+ * the mapping (column lookups, TOC array unwrapping, record construction) is
+ * measured, not the driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookRowMapperBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    int rows;
+
+    BookRepository repository;
+    List<ResultSet> resultSets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new BookRepository(null, new ObjectMapper());
+        Random random = new Random(11);
+        resultSets = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String[] toc = new String[random.nextInt(40)];
+            for (int c = 0; c < toc.length; c++) {
+                toc[c] = "Chapter " + (c + 1) + ". " + BenchmarkData.text(random, 3);
+            }
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", UUID.randomUUID().toString());
+            row.put("title", BenchmarkData.text(random, 4));
+            row.put("author", BenchmarkData.text(random, 2));
+            row.put("summary", BenchmarkData.text(random, 80));
+            row.put("genre", "Fiction");
+            row.put("publication_year", 1800 + random.nextInt(220));
+            row.put("image_url", "https://example.org/covers/" + i + ".jpg");
+            row.put("has_content", random.nextBoolean());
+            row.put("table_of_contents", toc.length == 0 ? null : array(toc));
+            row.put("text_url", "https://example.org/texts/" + i + ".txt");
+            resultSets.add(resultSet(row));
+        }
+    }
+
+    @Benchmark
+    public List<Book> mapRows() throws SQLException {
+        List<Book> books = new ArrayList<>(rows);
+        for (int i = 0; i < resultSets.size(); i++) {
+            books.add(repository.bookRowMapper.mapRow(resultSets.get(i), i));
+        }
+        return books;
+    }
+
+    // A current row backed by a map; only the getters the mapper uses are supported
+    private static ResultSet resultSet(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    Object value = args != null && args.length == 1 ? row.get((String) args[0]) : null;
+                    return switch (method.getName()) {
+                        case "getString" -> (String) value;
+                        case "getInt" -> value == null ? 0 : (Integer) value;
+                        case "getBoolean" -> value != null && (Boolean) value;
+                        case "getArray" -> value;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    private static Array array(String[] values) {
+        return (Array) Proxy.newProxyInstance(Array.class.getClassLoader(), new Class<?>[] { Array.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getArray") && args == null) {
+                        return values;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
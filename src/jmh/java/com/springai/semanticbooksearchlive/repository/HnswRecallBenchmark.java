@@ -0,0 +1,357 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recall and latency of the pgvector HNSW indexes against exact search, for
+ * picking {@code m}, {@code ef_construction} and the {@code ef_search}
+ * defaults of {@link HnswSearch}.
+ * <p>
+ * Not a JMH benchmark: it needs a populated database, and its result is a
+ * recall-versus-latency table rather than a single score. For each vector
+ * table it holds out {@code --queries} random rows as queries, copies the
+ * rest into a temporary table (the real tables and indexes are never
+ * touched), computes exact top-k neighbours by sequential scan, and then, for
+ * every {@code m} x {@code ef_construction} combination, builds an HNSW index
+ * on the copy and measures recall@k and latency percentiles for every
+ * {@code ef_search}. Tables whose repository filters by metadata (book,
+ * course, debate session) are measured both unfiltered and with the
+ * repository's filter, because filtered recall is usually the weaker one.
+ * </p>
+ * <p>
+ * Queries run with {@code hnsw.iterative_scan} set to {@code --iterative-scan},
+ * by default {@code strict_order} as {@link HnswSearch} does, so a filtered
+ * scan keeps going until it has k matching rows. {@code --iterative-scan=off}
+ * measures the plain scan, which applies the filter to only the first
+ * {@code ef_search} candidates.
+ * </p>
+ * <p>
+ * With {@code --shortlist} above zero the index covers only that many leading
+ * dimensions and each query takes {@code --oversample} times k rows from it,
+ * rescored on the full vectors, as searches do for an embedding space with
+ * {@code shortlist-dimensions} (see {@code EmbeddingSpaces.Space}).
+ * </p>
+ *
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec \
+ *     -Dbenchmark.main=com.springai.semanticbooksearchlive.repository.HnswRecallBenchmark \
+ *     -Dbenchmark.args="--tables=vector_store --m=16,32 --ef-construction=64,128"
+ * </pre>
+ */
+public final class HnswRecallBenchmark {
+
+    private record Table(String name, List<String> filterKeys) {
+    }
+
+    // The metadata keys each repository filters on
+    private static final List<Table> TABLES = List.of(
+            new Table("vector_store", List.of()),
+            new Table("book_content_vector_store", List.of("book_id")),
+            new Table("book_chapter_vector_store", List.of("book_id")),
+            new Table("study_material_vector_store", List.of("course_id")),
+            new Table("debate_vector_store", List.of("session_id", "file_label")));
+
+    private static final String SCRATCH_TABLE = "hnsw_recall_benchmark";
+    private static final String SCRATCH_INDEX = "hnsw_recall_benchmark_embedding";
+
+    private static final Set<String> ITERATIVE_SCAN_MODES = Set.of("off", "strict_order", "relaxed_order");
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("url", "jdbc:postgresql://localhost:5432/mydatabase");
+        DEFAULTS.put("user", "myuser");
+        DEFAULTS.put("password", "secret");
+        DEFAULTS.put("tables", String.join(",", TABLES.stream().map(Table::name).toList()));
+        DEFAULTS.put("queries", "100");
+        DEFAULTS.put("k", "10");
+        DEFAULTS.put("m", "16");
+        DEFAULTS.put("ef-construction", "64");
+        DEFAULTS.put("ef-search", "10,20,40,80,160,320");
+        DEFAULTS.put("shortlist", "0");
+        DEFAULTS.put("oversample", "4");
+        DEFAULTS.put("iterative-scan", "strict_order");
+        DEFAULTS.put("maintenance-work-mem", "512MB");
+    }
+
+    private record Query(String embedding, List<String> filterValues) {
+    }
+
+    private final Connection connection;
+    private final int queries;
+    private final int k;
+    private final int oversample;
+    private final String iterativeScan;
+
+    private HnswRecallBenchmark(Connection connection, int queries, int k, int oversample, String iterativeScan) {
+        this.connection = connection;
+        this.queries = queries;
+        this.k = k;
+        this.oversample = oversample;
+        this.iterativeScan = iterativeScan;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Options and defaults:");
+                DEFAULTS.forEach((name, value) -> System.err.println("  --" + name + "=" + value));
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        List<String> tables = List.of(options.get("tables").split(","));
+        String iterativeScan = options.get("iterative-scan");
+        if (!ITERATIVE_SCAN_MODES.contains(iterativeScan)) {
+            System.err.println("--iterative-scan must be one of " + ITERATIVE_SCAN_MODES + ": " + iterativeScan);
+            System.exit(2);
+        }
+        try (Connection connection = DriverManager.getConnection(options.get("url"), options.get("user"),
+                options.get("password"))) {
+            HnswRecallBenchmark benchmark = new HnswRecallBenchmark(connection,
+                    Integer.parseInt(options.get("queries")), Integer.parseInt(options.get("k")),
+                    Integer.parseInt(options.get("oversample")), iterativeScan);
+            benchmark.execute("SET maintenance_work_mem = '" + options.get("maintenance-work-mem") + "'");
+
+            System.out.println("hnsw.iterative_scan = " + iterativeScan);
+            System.out.printf("%-28s %-22s %9s %4s %6s %8s %9s %9s %9s %8s %8s %8s%n", "table", "filter",
+                    "shortlist", "m", "ef_con", "build s", "index MB", "ef_search", "recall@" + benchmark.k,
+                    "p50 ms", "p95 ms", "p99 ms");
+            for (Table table : TABLES) {
+                if (tables.contains(table.name())) {
+                    benchmark.run(table, ints(options.get("shortlist")), ints(options.get("m")),
+                            ints(options.get("ef-construction")), ints(options.get("ef-search")));
+                }
+            }
+        }
+    }
+
+    private void run(Table table, int[] shortlists, int[] ms, int[] efConstructions, int[] efSearches)
+            throws SQLException {
+        long rows = count(table.name());
+        if (rows < queries + k) {
+            System.out.printf("%-28s skipped: %d rows, need at least %d%n", table.name(), rows, queries + k);
+            return;
+        }
+
+        List<String> heldOut = new ArrayList<>();
+        List<Query> sample = sampleQueries(table, heldOut);
+        createScratchTable(table.name(), heldOut);
+        try {
+            List<List<String>> filters = table.filterKeys().isEmpty()
+                    ? List.of(List.of())
+                    : List.of(List.of(), table.filterKeys());
+
+            // Exact neighbours: the scratch table has no index yet, so this is a sequential scan
+            Map<List<String>, List<Set<String>>> truth = new LinkedHashMap<>();
+            for (List<String> filter : filters) {
+                List<Set<String>> exact = new ArrayList<>();
+                long[] latencies = search(sample, filter, 0, exact);
+                truth.put(filter, exact);
+                print(table.name(), filter, "-", "-", "-", "-", "-", "exact", 1.0, latencies);
+            }
+
+            for (int shortlist : shortlists) {
+                String indexed = shortlist == 0 ? "embedding" : "(" + prefix("embedding", shortlist) + ")";
+                for (int m : ms) {
+                    for (int efConstruction : efConstructions) {
+                        long start = System.nanoTime();
+                        execute("CREATE INDEX " + SCRATCH_INDEX + " ON " + SCRATCH_TABLE
+                                + " USING hnsw (" + indexed + " vector_cosine_ops) WITH (m = " + m
+                                + ", ef_construction = " + efConstruction + ")");
+                        double buildSeconds = (System.nanoTime() - start) / 1e9;
+                        double indexMb = indexBytes() / (1024.0 * 1024.0);
+
+                        // Measure the index even where the planner would pick a sequential scan
+                        execute("SET enable_seqscan = off");
+                        execute("SET hnsw.iterative_scan = " + iterativeScan);
+                        for (int efSearch : efSearches) {
+                            execute("SET hnsw.ef_search = " + efSearch);
+                            for (List<String> filter : filters) {
+                                List<Set<String>> approximate = new ArrayList<>();
+                                long[] latencies = search(sample, filter, shortlist, approximate);
+                                print(table.name(), filter, shortlist == 0 ? "-" : String.valueOf(shortlist),
+                                        String.valueOf(m), String.valueOf(efConstruction),
+                                        String.format("%.1f", buildSeconds), String.format("%.1f", indexMb),
+                                        String.valueOf(efSearch), recall(truth.get(filter), approximate),
+                                        latencies);
+                            }
+                        }
+                        execute("RESET enable_seqscan");
+                        execute("RESET hnsw.ef_search");
+                        execute("RESET hnsw.iterative_scan");
+                        execute("DROP INDEX " + SCRATCH_INDEX);
+                    }
+                }
+            }
+        } finally {
+            execute("DROP TABLE IF EXISTS " + SCRATCH_TABLE);
+        }
+    }
+
+    private List<Query> sampleQueries(Table table, List<String> heldOut) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id::text, embedding::text");
+        for (String key : table.filterKeys()) {
+            sql.append(", metadata->>'").append(key).append('\'');
+        }
+        sql.append(" FROM ").append(table.name()).append(" ORDER BY random() LIMIT ?");
+
+        // Same sample on every run over the same data
+        execute("SELECT setseed(0.42)");
+        List<Query> sample = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            statement.setInt(1, queries);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    heldOut.add(rs.getString(1));
+                    List<String> filterValues = new ArrayList<>();
+                    for (int i = 0; i < table.filterKeys().size(); i++) {
+                        filterValues.add(rs.getString(3 + i));
+                    }
+                    sample.add(new Query(rs.getString(2), filterValues));
+                }
+            }
+        }
+        return sample;
+    }
+
+    // The query rows are left out so no query finds itself at distance 0
+    private void createScratchTable(String table, List<String> heldOut) throws SQLException {
+        execute("DROP TABLE IF EXISTS " + SCRATCH_TABLE);
+        try (PreparedStatement statement = connection.prepareStatement("CREATE TEMPORARY TABLE " + SCRATCH_TABLE
+                + " AS SELECT id, metadata, embedding FROM " + table + " WHERE id::text <> ALL (?)")) {
+            Array ids = connection.createArrayOf("text", heldOut.toArray());
+            statement.setArray(1, ids);
+            statement.execute();
+        }
+        execute("ANALYZE " + SCRATCH_TABLE);
+    }
+
+    /**
+     * Runs every query once to warm the cache, then again timed; collects the
+     * result ids. With {@code shortlist} above zero, orders the index scan by
+     * that prefix and rescores {@code oversample * k} rows on the full vectors.
+     */
+    private long[] search(List<Query> sample, List<String> filter, int shortlist, List<Set<String>> results)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id::text, embedding <=> ?::vector AS distance FROM ")
+                .append(SCRATCH_TABLE);
+        for (int i = 0; i < filter.size(); i++) {
+            sql.append(i == 0 ? " WHERE " : " AND ").append("(metadata->>'").append(filter.get(i)).append("') = ?");
+        }
+        if (shortlist == 0) {
+            sql.append(" ORDER BY embedding <=> ?::vector LIMIT ?");
+        } else {
+            sql.insert(0, "SELECT * FROM (").append(" ORDER BY ").append(prefix("embedding", shortlist))
+                    .append(" <=> ").append(prefix("?::vector", shortlist))
+                    .append(" LIMIT ?) shortlist ORDER BY distance LIMIT ?");
+        }
+
+        long[] latencies = new long[sample.size()];
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int pass = 0; pass < 2; pass++) {
+                results.clear();
+                for (int q = 0; q < sample.size(); q++) {
+                    Query query = sample.get(q);
+                    int parameter = 1;
+                    statement.setString(parameter++, query.embedding());
+                    for (int i = 0; i < filter.size(); i++) {
+                        statement.setString(parameter++, query.filterValues().get(i));
+                    }
+                    statement.setString(parameter++, query.embedding());
+                    if (shortlist != 0) {
+                        statement.setInt(parameter++, k * oversample);
+                    }
+                    statement.setInt(parameter, k);
+
+                    long start = System.nanoTime();
+                    Set<String> ids = new HashSet<>();
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getString(1));
+                        }
+                    }
+                    latencies[q] = System.nanoTime() - start;
+                    results.add(ids);
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    // Mean over queries of |approximate ∩ exact| / |exact|; queries without neighbours are skipped
+    private static double recall(List<Set<String>> exact, List<Set<String>> approximate) {
+        double sum = 0.0;
+        int counted = 0;
+        for (int q = 0; q < exact.size(); q++) {
+            if (exact.get(q).isEmpty()) {
+                continue;
+            }
+            Set<String> found = new HashSet<>(approximate.get(q));
+            found.retainAll(exact.get(q));
+            sum += (double) found.size() / exact.get(q).size();
+            counted++;
+        }
+        return counted == 0 ? Double.NaN : sum / counted;
+    }
+
+    // Same expression as EmbeddingSpaces.Space, so the index matches the ORDER BY
+    private static String prefix(String vector, int dimensions) {
+        return "subvector(" + vector + ", 1, " + dimensions + ")::vector(" + dimensions + ")";
+    }
+
+    private void print(String table, List<String> filter, String shortlist, String m, String efConstruction,
+            String buildSeconds, String indexMb, String efSearch, double recall, long[] sortedLatencies) {
+        System.out.printf("%-28s %-22s %9s %4s %6s %8s %9s %9s %9.3f %8.2f %8.2f %8.2f%n", table,
+                filter.isEmpty() ? "none" : String.join("+", filter), shortlist, m, efConstruction, buildSeconds,
+                indexMb, efSearch, recall, millis(sortedLatencies, 50), millis(sortedLatencies, 95),
+                millis(sortedLatencies, 99));
+    }
+
+    // Nearest-rank percentile
+    private static double millis(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1_000_000.0;
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT count(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private long indexBytes() throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT pg_relation_size('" + SCRATCH_INDEX + "')")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,67 @@
+package com.springai.semanticbooksearchlive.repository.book;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row metadata parsing of {@link BookContentRepository} (raw
+ * {@code Map.class}); the keyword repository's {@code TypeReference} variant
+ * is measured by {@code KeywordMetadataParsingBenchmark}. {@code fields} is
+ * the number of metadata entries; chunks carry about six.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataParsingBenchmark {
+
+    @Param({ "6", "24", "96" })
+    int fields;
+
+    BookContentRepository repository;
+    String json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        repository = new BookContentRepository(null, null, objectMapper, null, null);
+        json = objectMapper.writeValueAsString(metadata(fields));
+    }
+
+    @Benchmark
+    public Map<String, Object> parseMetadata() {
+        return repository.parseMetadata(json);
+    }
+
+    /** Chunk-shaped metadata padded with extra keys up to {@code fields} entries. */
+    public static Map<String, Object> metadata(int fields) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("book_id", "5f0c3b0e-7d1a-4c39-9f43-1f0e5b8a2c11");
+        metadata.put("title", "Moby Dick; Or, The Whale");
+        metadata.put("chapter_id", "5f0c3b0e-7d1a-4c39-9f43-1f0e5b8a2c11-ch-12");
+        metadata.put("chapter_title", "CHAPTER 12. Biographical.");
+        metadata.put("chapter_index", 12);
+        metadata.put("chunk_count", 37);
+        for (int i = metadata.size(); i < fields; i++) {
+            metadata.put("extra_" + i, i % 2 == 0 ? "value " + i : i);
+        }
+        return metadata;
+    }
+}
@@ -0,0 +1,51 @@
+package com.springai.semanticbooksearchlive.repository.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springai.semanticbooksearchlive.repository.book.MetadataParsingBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row metadata parsing of {@link KeywordSearchRepository}
+ * ({@code TypeReference<Map<String, Object>>}), same inputs as
+ * {@link MetadataParsingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordMetadataParsingBenchmark {
+
+    @Param({ "6", "24", "96" })
+    int fields;
+
+    KeywordSearchRepository repository;
+    String json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        repository = new KeywordSearchRepository(null, objectMapper, null);
+        json = objectMapper.writeValueAsString(MetadataParsingBenchmark.metadata(fields));
+    }
+
+    @Benchmark
+    public Map<String, Object> parseMetadata() {
+        return repository.parseMetadata(json);
+    }
+}
@@ -0,0 +1,48 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import com.springai.semanticbooksearchlive.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookService#constructSearchResult}: vector store documents to
+ * {@link SearchResult} DTOs, for {@code size} documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResultMappingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    List<Document> documents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        documents = BenchmarkData.catalogDocuments("doc", size, 3);
+    }
+
+    @Benchmark
+    public List<SearchResult> constructSearchResult() {
+        return BookService.constructSearchResult(documents);
+    }
+}
@@ -0,0 +1,52 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenTextSplitter} with the default settings the ingestion paths use
+ * (book chapters, study material, debate files), on texts of {@code words}
+ * words; 200k words is roughly a long novel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenTextSplitterBenchmark {
+
+    @Param({ "5000", "50000", "200000" })
+    int words;
+
+    TokenTextSplitter splitter;
+    String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        splitter = new TokenTextSplitter();
+        text = BenchmarkData.text(new Random(7), words);
+    }
+
+    @Benchmark
+    public List<Document> split() {
+        return splitter.split(new Document(text));
+    }
+}
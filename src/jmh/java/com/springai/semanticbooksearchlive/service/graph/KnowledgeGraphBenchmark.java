@@ -0,0 +1,73 @@
+package com.springai.semanticbooksearchlive.service.graph;
+
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import com.springai.semanticbooksearchlive.model.GraphData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KnowledgeGraphService#buildGraph}: parsing the raw pgvector strings
+ * plus the all-pairs cosine similarity and link selection, for
+ * {@code books} catalog entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnowledgeGraphBenchmark {
+
+    @Param({ "50", "200", "500" })
+    int books;
+
+    KnowledgeGraphService service;
+    List<Document> documents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new KnowledgeGraphService(null);
+        Random random = new Random(42);
+        // Clustered vectors so a realistic share of pairs passes the link threshold
+        List<float[]> centres = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            centres.add(BenchmarkData.vector(random));
+        }
+        documents = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            float[] centre = centres.get(i % centres.size());
+            float[] noise = BenchmarkData.vector(random);
+            float[] vector = new float[BenchmarkData.DIMENSIONS];
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] = centre[d] + 0.8f * noise[d];
+            }
+            documents.add(new Document("doc-" + i, "summary", Map.of(
+                    "id", "book-" + i,
+                    "title", "Book " + i,
+                    "genre", "Fiction",
+                    "embedding_raw", BenchmarkData.vectorText(vector))));
+        }
+    }
+
+    @Benchmark
+    public GraphData buildGraph() {
+        return service.buildGraph(documents);
+    }
+}
@@ -0,0 +1,56 @@
+package com.springai.semanticbooksearchlive.service.search;
+
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import com.springai.semanticbooksearchlive.model.SearchResult;
+import com.springai.semanticbooksearchlive.util.RankFusionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HybridSearchService#mapToSearchResults} for plain vector results
+ * (distance scores) and fused results (RRF scores), {@code size} documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HybridResultMappingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    List<Document> vectorDocuments;
+    List<Document> fusedDocuments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vectorDocuments = BenchmarkData.catalogDocuments("doc", size, 4);
+        fusedDocuments = RankFusionUtils.fuse(BenchmarkData.catalogDocuments("fused", size, 5), List.of());
+    }
+
+    @Benchmark
+    public List<SearchResult> vectorResults() {
+        return HybridSearchService.mapToSearchResults(vectorDocuments);
+    }
+
+    @Benchmark
+    public List<SearchResult> fusedResults() {
+        return HybridSearchService.mapToSearchResults(fusedDocuments);
+    }
+}
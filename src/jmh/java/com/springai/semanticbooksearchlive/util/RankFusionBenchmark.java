@@ -0,0 +1,52 @@
+package com.springai.semanticbooksearchlive.util;
+
+import com.springai.semanticbooksearchlive.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RankFusionUtils#fuse} over two result lists of {@code size}
+ * documents each, half of them shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankFusionBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    List<Document> vectorResults;
+    List<Document> keywordResults;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vectorResults = BenchmarkData.catalogDocuments("doc", size, 1);
+        // Second half of the keyword list overlaps the vector list
+        keywordResults = new ArrayList<>(BenchmarkData.catalogDocuments("kw", size / 2, 2));
+        keywordResults.addAll(vectorResults.subList(0, size - size / 2));
+    }
+
+    @Benchmark
+    public List<Document> fuse() {
+        return RankFusionUtils.fuse(vectorResults, keywordResults);
+    }
+}
@@ -1,22 +1,45 @@
 package com.springai.semanticbooksearchlive.advisor;
 
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A Custom Spring AI Advisor that captures the "Thinking Process" of the AI.
+ * <p>
+ * Works for both blocking and streaming calls; for streams it also reports the
+ * time to the first token.
+ * </p>
+ * <p>
+ * Each call is also recorded in {@link StageMetrics} with its prompt and
+ * completion token counts, tagged with the feature the advisor was created for.
+ * </p>
  */
-public class InsightAdvisor implements CallAdvisor {
+public class InsightAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final String ADVISOR_NAME = "InsightAdvisor";
     private static final Logger logger = LoggerFactory.getLogger(InsightAdvisor.class);
 
+    private final StageMetrics metrics;
+    private final StageMetrics.Feature feature;
+
+    public InsightAdvisor(StageMetrics metrics, StageMetrics.Feature feature) {
+        this.metrics = metrics;
+        this.feature = feature;
+    }
+
     @Override
     public String getName() {
         return ADVISOR_NAME;
@@ -30,6 +53,7 @@ public class InsightAdvisor implements CallAdvisor {
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
         // 1. Capture Request context
         String userText = "N/A";
@@ -42,13 +66,21 @@ public class InsightAdvisor implements CallAdvisor {
         }
 
         // 2. Proceed with the call
-        ChatClientResponse response = chain.nextCall(request);
+        ChatClientResponse response;
+        try {
+            response = chain.nextCall(request);
+        } catch (RuntimeException e) {
+            metrics.recordLlmCall(feature, null, System.nanoTime() - startNanos, null, false);
+            throw e;
+        }
 
         long duration = System.currentTimeMillis() - startTime;
 
-        // 3. Inject Insights (Logging for now)
+        // 3. Inject Insights (logged and recorded)
         if (response != null && response.chatResponse() != null) {
             ChatResponse chatResponse = response.chatResponse();
+            metrics.recordLlmCall(feature, chatResponse.getMetadata().getModel(), System.nanoTime() - startNanos,
+                    chatResponse.getMetadata().getUsage(), true);
 
             if (!chatResponse.getResults().isEmpty()) {
                 logger.info("AI Insight - Time: {}ms, Model: {}", duration, chatResponse.getMetadata().getModel());
@@ -57,4 +89,39 @@ public class InsightAdvisor implements CallAdvisor {
 
         return response;
     }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        AtomicLong firstTokenTime = new AtomicLong();
+        AtomicReference<String> model = new AtomicReference<>("N/A");
+        // Providers report usage on the final chunk only (OpenAI needs stream-usage enabled)
+        AtomicReference<Usage> usage = new AtomicReference<>();
+
+        return chain.nextStream(request)
+                .doOnNext(response -> {
+                    firstTokenTime.compareAndSet(0, System.currentTimeMillis());
+                    if (response.chatResponse() != null && response.chatResponse().getMetadata() != null
+                            && response.chatResponse().getMetadata().getModel() != null
+                            && !response.chatResponse().getMetadata().getModel().isEmpty()) {
+                        model.set(response.chatResponse().getMetadata().getModel());
+                    }
+                    if (response.chatResponse() != null && response.chatResponse().getMetadata() != null
+                            && response.chatResponse().getMetadata().getUsage() != null
+                            && response.chatResponse().getMetadata().getUsage().getTotalTokens() != null
+                            && response.chatResponse().getMetadata().getUsage().getTotalTokens() > 0) {
+                        usage.set(response.chatResponse().getMetadata().getUsage());
+                    }
+                })
+                .doOnError(e -> metrics.recordLlmCall(feature, model.get(), System.nanoTime() - startNanos, null,
+                        false))
+                .doOnComplete(() -> {
+                    long now = System.currentTimeMillis();
+                    long firstToken = firstTokenTime.get() > 0 ? firstTokenTime.get() - startTime : now - startTime;
+                    logger.info("AI Insight (stream) - First token: {}ms, Time: {}ms, Model: {}",
+                            firstToken, now - startTime, model.get());
+                    metrics.recordLlmCall(feature, model.get(), System.nanoTime() - startNanos, usage.get(), true);
+                });
+    }
 }
@@ -0,0 +1,69 @@
+package com.springai.semanticbooksearchlive.advisor;
+
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler.Feature;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import reactor.core.publisher.Flux;
+
+/**
+ * Routes every call of a {@code ChatClient} through the {@link LlmCallScheduler}.
+ * <p>
+ * The feature is fixed per client; a single request can override it with the
+ * {@link #FEATURE} advisor parameter (e.g. quiz generation on the teacher's
+ * client). Runs after the semantic cache, so cache hits never take a slot, and
+ * before {@link InsightAdvisor}, so its timings exclude queueing.
+ * </p>
+ */
+public class LlmSchedulerAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String FEATURE = "llm_scheduler_feature";
+
+    private static final String ADVISOR_NAME = "LlmSchedulerAdvisor";
+
+    private final LlmCallScheduler scheduler;
+    private final Feature defaultFeature;
+
+    public LlmSchedulerAdvisor(LlmCallScheduler scheduler, Feature defaultFeature) {
+        this.scheduler = scheduler;
+        this.defaultFeature = defaultFeature;
+    }
+
+    @Override
+    public String getName() {
+        return ADVISOR_NAME;
+    }
+
+    @Override
+    public int getOrder() {
+        return -100;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        LlmCallScheduler.Permit permit = scheduler.acquire(feature(request));
+        try {
+            return chain.nextCall(request);
+        } finally {
+            permit.close();
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        // The slot is held from subscription until the stream completes, fails or is cancelled
+        return Flux.using(
+                () -> scheduler.acquire(feature(request)),
+                permit -> chain.nextStream(request),
+                LlmCallScheduler.Permit::close);
+    }
+
+    private Feature feature(ChatClientRequest request) {
+        Object feature = request.context().get(FEATURE);
+        return feature instanceof Feature ? (Feature) feature : defaultFeature;
+    }
+}
@@ -0,0 +1,321 @@
+package com.springai.semanticbooksearchlive.advisor;
+
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import com.springai.semanticbooksearchlive.util.VectorUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Semantic response cache in front of the chat model.
+ * <p>
+ * Callers opt in per request by passing a retrieval scope under {@link #SCOPE}
+ * (see {@link #catalogScope()}, {@link #bookScope(String, String)} and
+ * {@link #courseScope(String)}). The user message is embedded and compared
+ * with earlier prompts of the same scope, in the read embedding space through
+ * {@link EmbeddingSpaces#embedQuery}, so the question the retrieval of the
+ * request has just embedded is not sent to the provider again; an answer stored for a prompt within
+ * {@code semantic.cache.similarity-threshold} is returned without calling the
+ * model. Requests that carry conversation history or media bypass the cache,
+ * since their answers depend on more than the question.
+ * </p>
+ * <p>
+ * Entries expire after {@code semantic.cache.ttl-minutes}; when the data behind
+ * a scope changes, {@link #invalidate(String)} drops the scope and everything
+ * nested under it (e.g. {@code book:42} also clears {@code book:42:ch-3}).
+ * </p>
+ */
+@Component
+public class SemanticCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String SCOPE = "semantic_cache_scope";
+
+    private static final String ADVISOR_NAME = "SemanticCacheAdvisor";
+    private static final String CACHE_MODEL = "semantic-cache";
+    private static final Logger logger = LoggerFactory.getLogger(SemanticCacheAdvisor.class);
+
+    private final EmbeddingSpaces embeddingSpaces;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final long ttlNanos;
+    private final int maxEntriesPerScope;
+
+    // Scope -> entries, oldest first
+    private final Map<String, List<Entry>> entries = new ConcurrentHashMap<>();
+    // Scope -> number of invalidations of exactly that scope
+    private final Map<String, Long> invalidationCounts = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter invalidations;
+
+    // Entries of another space than the current read space never match
+    private record Entry(String space, float[] embedding, String answer, long createdAt) {
+    }
+
+    public SemanticCacheAdvisor(EmbeddingSpaces embeddingSpaces, MeterRegistry meterRegistry,
+            @Value("${semantic.cache.enabled:true}") boolean enabled,
+            @Value("${semantic.cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${semantic.cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${semantic.cache.max-entries-per-scope:500}") int maxEntriesPerScope) {
+        this.embeddingSpaces = embeddingSpaces;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        this.maxEntriesPerScope = maxEntriesPerScope;
+
+        this.invalidations = meterRegistry.counter("semantic.cache.invalidations");
+        Gauge.builder("semantic.cache.entries", this, c -> c.size())
+                .register(meterRegistry);
+        Gauge.builder("semantic.cache.hit.ratio", this, c -> c.hitRatio())
+                .description("Share of cacheable requests answered from the cache")
+                .register(meterRegistry);
+    }
+
+    public static String catalogScope() {
+        return "catalog";
+    }
+
+    public static String bookScope(String bookId, String chapterId) {
+        return chapterId == null || chapterId.isBlank() ? "book:" + bookId : "book:" + bookId + ":" + chapterId;
+    }
+
+    public static String courseScope(String courseId) {
+        return "course:" + courseId;
+    }
+
+    @Override
+    public String getName() {
+        return ADVISOR_NAME;
+    }
+
+    @Override
+    public int getOrder() {
+        // After the chat memory advisor, so history is visible and hits are still remembered
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Lookup lookup = lookup(request);
+        if (lookup.answer() != null) {
+            return cachedResponse(request, lookup.answer());
+        }
+
+        ChatClientResponse response = chain.nextCall(request);
+        if (lookup.embedding() != null) {
+            store(lookup, text(response));
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        Lookup lookup = lookup(request);
+        if (lookup.answer() != null) {
+            return Flux.just(cachedResponse(request, lookup.answer()));
+        }
+        if (lookup.embedding() == null) {
+            return chain.nextStream(request);
+        }
+
+        // Only a stream that completes normally is cached, never a partial answer
+        StringBuilder answer = new StringBuilder();
+        return chain.nextStream(request)
+                .doOnNext(response -> {
+                    String token = text(response);
+                    if (token != null) {
+                        answer.append(token);
+                    }
+                })
+                .doOnComplete(() -> store(lookup, answer.toString()));
+    }
+
+    /**
+     * Drops all entries of the scope and of scopes nested under it. Answers
+     * of requests that looked up before the call are not stored afterwards,
+     * since they may be built on the data being replaced.
+     */
+    public void invalidate(String scope) {
+        // Counted before the entries go, so a store that still sees the old generation finished before
+        invalidationCounts.merge(scope, 1L, Long::sum);
+        entries.keySet().removeIf(key -> key.equals(scope) || key.startsWith(scope + ":"));
+        invalidations.increment();
+    }
+
+    private record Lookup(String scope, long generation, String space, float[] embedding, String answer) {
+        static final Lookup BYPASS = new Lookup(null, 0, null, null, null);
+    }
+
+    private Lookup lookup(ChatClientRequest request) {
+        Object scopeParam = request.context().get(SCOPE);
+        if (!enabled || scopeParam == null) {
+            return Lookup.BYPASS;
+        }
+        String scope = scopeParam.toString();
+        String question = cacheableQuestion(request);
+        if (question == null) {
+            counter("semantic.cache.bypass", scope).increment();
+            return Lookup.BYPASS;
+        }
+
+        long generation = generation(scope);
+        Space space = embeddingSpaces.read();
+        float[] embedding;
+        try {
+            embedding = embeddingSpaces.embedQuery(space, question);
+        } catch (RuntimeException e) {
+            // The cache is an optimisation; never fail the chat because of it
+            logger.warn("Semantic cache lookup failed: {}", e.getMessage());
+            return Lookup.BYPASS;
+        }
+
+        String answer = findAnswer(scope, space.name(), embedding);
+        counter(answer != null ? "semantic.cache.hits" : "semantic.cache.misses", scope).increment();
+        return new Lookup(scope, generation, space.name(), embedding, answer);
+    }
+
+    // The last user message, or null when the answer depends on more than that
+    private String cacheableQuestion(ChatClientRequest request) {
+        List<Message> messages = request.prompt().getInstructions();
+        UserMessage question = null;
+        for (Message message : messages) {
+            if (message.getMessageType() == MessageType.ASSISTANT
+                    || message.getMessageType() == MessageType.TOOL) {
+                return null;
+            }
+            if (message instanceof UserMessage userMessage) {
+                if (question != null) {
+                    return null;
+                }
+                question = userMessage;
+            }
+        }
+        if (question == null || question.getText() == null || question.getText().isBlank()
+                || !question.getMedia().isEmpty()) {
+            return null;
+        }
+        // Untrimmed, as the retrieval embedded it
+        return question.getText();
+    }
+
+    private String findAnswer(String scope, String space, float[] embedding) {
+        List<Entry> scoped = entries.get(scope);
+        if (scoped == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        synchronized (scoped) {
+            Iterator<Entry> it = scoped.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (now - entry.createdAt() > ttlNanos) {
+                    it.remove();
+                    continue;
+                }
+                if (!entry.space().equals(space)) {
+                    continue;
+                }
+                double similarity = VectorUtils.cosineSimilarity(embedding, entry.embedding());
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best != null ? best.answer() : null;
+    }
+
+    private void store(Lookup lookup, String answer) {
+        if (answer == null || answer.isBlank()) {
+            return;
+        }
+        List<Entry> scoped = entries.computeIfAbsent(lookup.scope(), key -> new ArrayList<>());
+        synchronized (scoped) {
+            if (generation(lookup.scope()) != lookup.generation()) {
+                // Invalidated since the lookup; the list may be an orphan or freshly recreated
+                return;
+            }
+            scoped.add(new Entry(lookup.space(), lookup.embedding(), answer, System.nanoTime()));
+            while (scoped.size() > maxEntriesPerScope) {
+                scoped.remove(0);
+            }
+        }
+    }
+
+    // Invalidations of the scope and of every scope it is nested under (book:42 for book:42:ch-3)
+    private long generation(String scope) {
+        long generation = invalidationCounts.getOrDefault(scope, 0L);
+        for (int colon = scope.lastIndexOf(':'); colon > 0; colon = scope.lastIndexOf(':', colon - 1)) {
+            generation += invalidationCounts.getOrDefault(scope.substring(0, colon), 0L);
+        }
+        return generation;
+    }
+
+    private ChatClientResponse cachedResponse(ChatClientRequest request, String answer) {
+        ChatResponse chatResponse = new ChatResponse(List.of(new Generation(new AssistantMessage(answer))),
+                ChatResponseMetadata.builder().model(CACHE_MODEL).build());
+        return ChatClientResponse.builder()
+                .chatResponse(chatResponse)
+                .context(Map.copyOf(request.context()))
+                .build();
+    }
+
+    private String text(ChatClientResponse response) {
+        if (response == null || response.chatResponse() == null || response.chatResponse().getResult() == null
+                || response.chatResponse().getResult().getOutput() == null) {
+            return null;
+        }
+        return response.chatResponse().getResult().getOutput().getText();
+    }
+
+    // Tagged by scope type only (catalog, book, course) to keep cardinality bounded
+    private Counter counter(String name, String scope) {
+        int colon = scope.indexOf(':');
+        return meterRegistry.counter(name, "scope", colon < 0 ? scope : scope.substring(0, colon));
+    }
+
+    private int size() {
+        return entries.values().stream().mapToInt(scoped -> {
+            synchronized (scoped) {
+                return scoped.size();
+            }
+        }).sum();
+    }
+
+    private double hitRatio() {
+        double hits = meterRegistry.find("semantic.cache.hits").counters().stream().mapToDouble(Counter::count).sum();
+        double misses = meterRegistry.find("semantic.cache.misses").counters().stream().mapToDouble(Counter::count)
+                .sum();
+        return hits + misses == 0 ? 0.0 : hits / (hits + misses);
+    }
+}
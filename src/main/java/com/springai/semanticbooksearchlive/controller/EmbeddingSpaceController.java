@@ -0,0 +1,46 @@
+package com.springai.semanticbooksearchlive.controller;
+
+import com.springai.semanticbooksearchlive.model.EmbeddingMigrationStatus;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingMigrationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/embedding-spaces")
+public class EmbeddingSpaceController {
+
+    private final EmbeddingMigrationService migrationService;
+
+    public EmbeddingSpaceController(EmbeddingMigrationService migrationService) {
+        this.migrationService = migrationService;
+    }
+
+    @GetMapping
+    public EmbeddingMigrationStatus status() {
+        return migrationService.status();
+    }
+
+    /** Starts dual writes and the background re-embedding into {@code target}. */
+    @PostMapping("/migration")
+    public ResponseEntity<EmbeddingMigrationStatus> start(@RequestParam String target) {
+        try {
+            return ResponseEntity.ok(migrationService.start(target));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /** Stops dual writes; before the switch-over this abandons the migration. */
+    @DeleteMapping("/migration")
+    public EmbeddingMigrationStatus finish() {
+        return migrationService.finish();
+    }
+}
@@ -0,0 +1,23 @@
+package com.springai.semanticbooksearchlive.controller;
+
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns fast-failed query embeddings into {@code 503 Service Unavailable} for
+ * the features that have no keyword fallback (book, course and debate RAG).
+ */
+@RestControllerAdvice
+public class EmbeddingUnavailableExceptionHandler {
+
+    @ExceptionHandler(EmbeddingUnavailableException.class)
+    public ResponseEntity<String> handleEmbeddingUnavailable(EmbeddingUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(e.getMessage() + ". Please try again shortly.");
+    }
+}
@@ -0,0 +1,27 @@
+package com.springai.semanticbooksearchlive.controller;
+
+import com.springai.semanticbooksearchlive.service.llm.LlmCapacityExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns LLM scheduler rejections into {@code 429 Too Many Requests}.
+ * <p>
+ * The body is plain text so it can also be written for SSE endpoints.
+ * </p>
+ */
+@RestControllerAdvice
+public class LlmCapacityExceptionHandler {
+
+    @ExceptionHandler(LlmCapacityExceededException.class)
+    public ResponseEntity<String> handleCapacityExceeded(LlmCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(e.getMessage() + ". Please retry in " + e.getRetryAfterSeconds() + "s.");
+    }
+}
@@ -4,8 +4,11 @@ import com.springai.semanticbooksearchlive.model.debate.DebateRequest;
 import com.springai.semanticbooksearchlive.model.debate.DebateResponse;
 import com.springai.semanticbooksearchlive.service.debate.DebateFileService;
 import com.springai.semanticbooksearchlive.service.debate.DebateOrchestratorService;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.Map;
@@ -44,4 +47,16 @@ public class StandaloneDebateController {
     public DebateResponse nextTurn(@RequestBody DebateRequest request) {
         return orchestratorService.processTurn(request);
     }
+
+    /**
+     * Streams the next turn: a {@code speaker} event first, then the reply as
+     * {@code message} events.
+     */
+    @PostMapping(value = "/turn/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> nextTurnStream(@RequestBody DebateRequest request) {
+        DebateOrchestratorService.StreamingTurn turn = orchestratorService.streamTurn(request);
+        return Flux.concat(
+                Flux.just(ServerSentEvent.builder(turn.speaker()).event("speaker").build()),
+                turn.content().map(token -> ServerSentEvent.builder(token).event("message").build()));
+    }
 }
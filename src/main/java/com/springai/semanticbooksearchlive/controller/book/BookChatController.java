@@ -1,12 +1,17 @@
 package com.springai.semanticbooksearchlive.controller.book;
 
+import com.springai.semanticbooksearchlive.model.BookChapter;
+import com.springai.semanticbooksearchlive.model.PassageSearchResponse;
 import com.springai.semanticbooksearchlive.service.book.BookChatService;
 import com.springai.semanticbooksearchlive.service.book.BookService;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -26,9 +31,33 @@ public class BookChatController {
     public String chatWithBook(
             @PathVariable String id,
             @RequestParam String title,
+            @RequestParam(required = false) String chapterId,
             @RequestBody Map<String, String> payload) {
         String message = payload.get("message");
-        return bookChatService.chat(id, title, message);
+        return bookChatService.chat(id, title, message, chapterId);
+    }
+
+    @PostMapping(value = "/{id}/chat/content/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> chatWithBookStream(
+            @PathVariable String id,
+            @RequestParam String title,
+            @RequestParam(required = false) String chapterId,
+            @RequestBody Map<String, String> payload) {
+        return bookChatService.chatStream(id, title, payload.get("message"), chapterId);
+    }
+
+    @GetMapping("/content/search")
+    public PassageSearchResponse searchContent(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "5") int books,
+            @RequestParam(defaultValue = "3") int perBook,
+            @RequestParam(required = false) Integer efSearch) {
+        return bookChatService.searchLibraryContent(q, books, perBook, efSearch);
+    }
+
+    @GetMapping("/{id}/chapters")
+    public List<BookChapter> getChapters(@PathVariable String id) {
+        return bookChatService.getChapters(id);
     }
 
     @PostMapping("/{id}/upload")
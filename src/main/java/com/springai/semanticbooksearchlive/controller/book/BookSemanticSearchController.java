@@ -2,20 +2,27 @@ package com.springai.semanticbooksearchlive.controller.book;
 
 import com.springai.semanticbooksearchlive.model.Book;
 import com.springai.semanticbooksearchlive.model.CompareSearchResponse;
+import com.springai.semanticbooksearchlive.model.ReindexSummary;
 import com.springai.semanticbooksearchlive.service.book.BookService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookSemanticSearchController {
 
+        private static final String CONVERSATION_ID_HEADER = "X-Conversation-Id";
+
         private final BookService bookService;
 
         public BookSemanticSearchController(BookService bookService) {
@@ -32,6 +39,11 @@ public class BookSemanticSearchController {
                 return bookService.loadBooksToVectorStore();
         }
 
+        @PostMapping("/reindex")
+        public ReindexSummary reindex() {
+                return bookService.reindexCatalog();
+        }
+
         @GetMapping("/genres")
         public Set<String> getGenres() {
                 return bookService.getGenres();
@@ -45,19 +57,48 @@ public class BookSemanticSearchController {
 
         @PostMapping(value = "/chat", consumes = "multipart/form-data")
         public String chat(@RequestParam("query") String query,
-                        @RequestParam(value = "file", required = false) MultipartFile file) throws IOException {
+                        @RequestParam(value = "file", required = false) MultipartFile file,
+                        @RequestParam(value = "conversationId", required = false) String conversationId,
+                        HttpServletResponse response) throws IOException {
+                Resource imageResource = null;
+                if (file != null && !file.isEmpty()) {
+                        imageResource = new ByteArrayResource(file.getBytes());
+                }
+                // New conversations get an id the client sends back on the next turn
+                String activeConversationId = (conversationId == null || conversationId.isBlank())
+                                ? UUID.randomUUID().toString()
+                                : conversationId;
+                response.setHeader(CONVERSATION_ID_HEADER, activeConversationId);
+                return bookService.chat(activeConversationId, query, imageResource);
+        }
+
+        /** Same as {@code /chat}, but sends tokens as Server-Sent Events as they are generated. */
+        @PostMapping(value = "/chat/stream", consumes = "multipart/form-data",
+                        produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public Flux<String> chatStream(@RequestParam("query") String query,
+                        @RequestParam(value = "file", required = false) MultipartFile file,
+                        @RequestParam(value = "conversationId", required = false) String conversationId,
+                        HttpServletResponse response) throws IOException {
                 Resource imageResource = null;
                 if (file != null && !file.isEmpty()) {
                         imageResource = new ByteArrayResource(file.getBytes());
                 }
-                return bookService.chat(query, imageResource);
+                String activeConversationId = (conversationId == null || conversationId.isBlank())
+                                ? UUID.randomUUID().toString()
+                                : conversationId;
+                // Headers go out before the first event, so the id is available immediately
+                response.setHeader(CONVERSATION_ID_HEADER, activeConversationId);
+                return bookService.chatStream(activeConversationId, query, imageResource);
         }
 
         @GetMapping("/search/compare")
         public CompareSearchResponse compareSearch(
                         @RequestParam String q,
                         @RequestParam(required = false) String genre,
-                        @RequestParam(defaultValue = "3") int limit) {
-                return bookService.search(q, genre, limit);
+                        @RequestParam(defaultValue = "3") int limit,
+                        @RequestParam(defaultValue = "false") boolean profile,
+                        @RequestParam(defaultValue = "false") boolean explain,
+                        @RequestParam(required = false) Integer efSearch) {
+                return bookService.search(q, genre, limit, profile, explain, efSearch);
         }
 }
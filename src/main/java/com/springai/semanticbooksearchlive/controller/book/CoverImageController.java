@@ -0,0 +1,58 @@
+package com.springai.semanticbooksearchlive.controller.book;
+
+import com.springai.semanticbooksearchlive.model.Book;
+import com.springai.semanticbooksearchlive.repository.BookRepository;
+import com.springai.semanticbooksearchlive.service.book.CoverImageService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/covers")
+public class CoverImageController {
+
+    private final CoverImageService coverImageService;
+    private final BookRepository bookRepository;
+
+    public CoverImageController(CoverImageService coverImageService, BookRepository bookRepository) {
+        this.coverImageService = coverImageService;
+        this.bookRepository = bookRepository;
+    }
+
+    @GetMapping("/{key:[0-9a-f]{32}}")
+    public ResponseEntity<Resource> getCover(@PathVariable String key,
+            @RequestParam(defaultValue = "400") int w) throws IOException {
+        if (!CoverImageService.WIDTHS.contains(w)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<Path> cover = coverImageService.findCover(key, w);
+        if (cover.isEmpty()) {
+            // Background worker has not run yet (or the cover dir was wiped): render now
+            Optional<Book> book = bookRepository.findByImageUrl(CoverImageService.COVER_URL_PREFIX + key);
+            if (book.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            cover = Optional.of(coverImageService.generate(book.get().title(), book.get().author(), w));
+        }
+
+        // Content-addressed, so the bytes behind a URL never change
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(key + "-" + w)
+                .contentType(MediaType.IMAGE_PNG)
+                .body(new FileSystemResource(cover.get()));
+    }
+}
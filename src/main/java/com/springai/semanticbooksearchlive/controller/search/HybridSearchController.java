@@ -18,7 +18,10 @@ public class HybridSearchController {
     }
 
     @GetMapping
-    public HybridSearchResponse search(@RequestParam String query) {
-        return hybridSearchService.search(query);
+    public HybridSearchResponse search(@RequestParam String query,
+            @RequestParam(defaultValue = "false") boolean profile,
+            @RequestParam(defaultValue = "false") boolean explain,
+            @RequestParam(required = false) Integer efSearch) {
+        return hybridSearchService.search(query, profile, explain, efSearch);
     }
 }
@@ -5,9 +5,11 @@ import com.springai.semanticbooksearchlive.model.StudyMaterial;
 import com.springai.semanticbooksearchlive.service.study.CourseService;
 import com.springai.semanticbooksearchlive.service.study.StudyMaterialService;
 import com.springai.semanticbooksearchlive.service.study.TeacherService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.List;
@@ -68,6 +70,11 @@ public class StudyRoomController {
         return Map.of("response", response);
     }
 
+    @PostMapping(value = "/courses/{courseId}/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> chatStream(@PathVariable String courseId, @RequestBody Map<String, String> payload) {
+        return teacherService.chatStream(courseId, payload.get("message"));
+    }
+
     @PostMapping("/courses/{courseId}/quiz")
     public String generateQuiz(@PathVariable String courseId, @RequestBody Map<String, String> payload) {
         // Return raw JSON string from LLM
@@ -0,0 +1,4 @@
+package com.springai.semanticbooksearchlive.model;
+
+public record BookChapter(String chapterId, String title, int chunkCount) {
+}
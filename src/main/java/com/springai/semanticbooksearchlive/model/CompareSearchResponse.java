@@ -1,6 +1,15 @@
 package com.springai.semanticbooksearchlive.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
-public record CompareSearchResponse(List<SearchResult> semantic, List<SearchResult> keyword) {
+/**
+ * @param degraded true when the semantic leg was skipped (embedding provider
+ *                 unavailable or over its latency budget) and only keyword
+ *                 results are present
+ * @param profile  stage timings, only when profiling was requested
+ */
+public record CompareSearchResponse(List<SearchResult> semantic, List<SearchResult> keyword, boolean degraded,
+        @JsonInclude(JsonInclude.Include.NON_NULL) SearchProfile profile) {
 }
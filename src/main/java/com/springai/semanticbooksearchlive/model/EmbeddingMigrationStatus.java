@@ -0,0 +1,14 @@
+package com.springai.semanticbooksearchlive.model;
+
+import java.util.List;
+
+/**
+ * Embedding spaces in use and, while a migration runs, how many rows of each
+ * vector table still lack a vector in the target space.
+ */
+public record EmbeddingMigrationStatus(String readSpace, String targetSpace, String previousSpace,
+        List<TableCoverage> coverage) {
+
+    public record TableCoverage(String table, long rows, long missing) {
+    }
+}
@@ -1,9 +1,19 @@
 package com.springai.semanticbooksearchlive.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+/**
+ * @param degraded true when the vector leg was skipped (embedding provider
+ *                 unavailable or over its latency budget), so the hybrid
+ *                 results come from keyword search alone
+ * @param profile  stage timings, only when profiling was requested
+ */
 public record HybridSearchResponse(
         List<SearchResult> vectorResults,
         List<SearchResult> keywordResults,
-        List<SearchResult> hybridResults) {
+        List<SearchResult> hybridResults,
+        boolean degraded,
+        @JsonInclude(JsonInclude.Include.NON_NULL) SearchProfile profile) {
 }
@@ -0,0 +1,11 @@
+package com.springai.semanticbooksearchlive.model;
+
+import java.util.List;
+
+public record PassageSearchResponse(String query, List<BookPassages> books) {
+    public record BookPassages(String bookId, String title, double score, List<Passage> passages) {
+    }
+
+    public record Passage(String content, String chapterTitle, double score) {
+    }
+}
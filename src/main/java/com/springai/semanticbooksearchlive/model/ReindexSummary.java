@@ -0,0 +1,4 @@
+package com.springai.semanticbooksearchlive.model;
+
+public record ReindexSummary(int added, int updated, int unchanged, int removed, long durationMs) {
+}
@@ -0,0 +1,27 @@
+package com.springai.semanticbooksearchlive.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the time of one search went; returned only when {@code profile=true}.
+ *
+ * @param stageMillis       wall time per stage, in execution order
+ * @param candidates        documents returned by each leg
+ * @param sharedBufferHits  Postgres shared-buffer cache hits of the vector
+ *                          query; only with {@code explain=true}
+ * @param sharedBufferReads blocks the vector query had to read; only with
+ *                          {@code explain=true}
+ * @param vectorQueryPlan   {@code EXPLAIN (ANALYZE, BUFFERS)} of the vector
+ *                          query; only with {@code explain=true}
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SearchProfile(
+        Map<String, Double> stageMillis,
+        Map<String, Integer> candidates,
+        Long sharedBufferHits,
+        Long sharedBufferReads,
+        List<String> vectorQueryPlan) {
+}
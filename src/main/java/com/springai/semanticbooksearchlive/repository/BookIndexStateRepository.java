@@ -0,0 +1,63 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class BookIndexStateRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public BookIndexStateRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    public record IndexState(String bookId, String vectorId, String fingerprint) {
+    }
+
+    public Map<String, IndexState> findAll() {
+        Map<String, IndexState> states = new HashMap<>();
+        jdbcClient.sql("SELECT book_id, vector_id, fingerprint FROM book_index_state")
+                .query((rs, rowNum) -> new IndexState(
+                        rs.getString("book_id"),
+                        rs.getString("vector_id"),
+                        rs.getString("fingerprint")))
+                .list()
+                .forEach(state -> states.put(state.bookId(), state));
+        return states;
+    }
+
+    public void upsertAll(List<IndexState> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+        // Passed as parallel arrays so the whole batch is a single statement
+        jdbcClient.sql("""
+                INSERT INTO book_index_state (book_id, vector_id, fingerprint, indexed_at)
+                SELECT b, v, f, CURRENT_TIMESTAMP
+                FROM unnest(:bookIds::text[], :vectorIds::text[], :fingerprints::text[]) AS t(b, v, f)
+                ON CONFLICT (book_id) DO UPDATE
+                SET vector_id = EXCLUDED.vector_id,
+                    fingerprint = EXCLUDED.fingerprint,
+                    indexed_at = EXCLUDED.indexed_at
+                """)
+                .param("bookIds", states.stream().map(IndexState::bookId).toArray(String[]::new))
+                .param("vectorIds", states.stream().map(IndexState::vectorId).toArray(String[]::new))
+                .param("fingerprints", states.stream().map(IndexState::fingerprint).toArray(String[]::new))
+                .update();
+    }
+
+    public void deleteAll(Collection<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        jdbcClient.sql("DELETE FROM book_index_state WHERE book_id = ANY(:bookIds::text[])")
+                .param("bookIds", bookIds.toArray(new String[0]))
+                .update();
+    }
+}
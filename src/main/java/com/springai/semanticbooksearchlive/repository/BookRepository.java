@@ -1,20 +1,29 @@
 package com.springai.semanticbooksearchlive.repository;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springai.semanticbooksearchlive.model.Book;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public class BookRepository {
 
     private final JdbcClient jdbcClient;
+    private final ObjectMapper objectMapper;
 
-    public BookRepository(JdbcClient jdbcClient) {
+    public BookRepository(JdbcClient jdbcClient, ObjectMapper objectMapper) {
         this.jdbcClient = jdbcClient;
+        this.objectMapper = objectMapper;
     }
 
     public List<Book> findAll() {
@@ -30,7 +39,15 @@ public class BookRepository {
                 .optional();
     }
 
-    private final org.springframework.jdbc.core.RowMapper<Book> bookRowMapper = (rs, rowNum) -> {
+    public Optional<Book> findByImageUrl(String imageUrl) {
+        return jdbcClient.sql("SELECT * FROM books WHERE image_url = :imageUrl LIMIT 1")
+                .param("imageUrl", imageUrl)
+                .query(bookRowMapper)
+                .optional();
+    }
+
+    // Package-private for the JMH benchmarks
+    final org.springframework.jdbc.core.RowMapper<Book> bookRowMapper = (rs, rowNum) -> {
         java.sql.Array tocArray = rs.getArray("table_of_contents");
         List<String> toc = java.util.Collections.emptyList();
         if (tocArray != null) {
@@ -52,37 +69,76 @@ public class BookRepository {
     };
 
     public void save(Book book) {
-        // Simple upsert based on title (for now) or insert if new
-        // Ideally we check if exists, or use ON CONFLICT if we had a unique constraint
-        // on title
-
-        Optional<Book> existing = jdbcClient.sql("SELECT * FROM books WHERE title = :title")
-                .param("title", book.title())
-                .query(bookRowMapper)
-                .optional();
+        saveAll(List.of(book));
+    }
 
-        if (existing.isPresent()) {
-            // Update? For now, we skip to avoid duplicates or overwrite
-            return;
+    /**
+     * Inserts the given books in a single statement and returns the ones that
+     * were actually new.
+     * <p>
+     * Duplicates inside the batch are collapsed by title first; duplicates of
+     * existing rows are skipped by {@code ON CONFLICT DO NOTHING} on the primary
+     * key and the unique title index. Columns are passed as parallel arrays and
+     * expanded with {@code unnest}, so the batch size does not change the number
+     * of round trips.
+     * </p>
+     */
+    public List<Book> saveAll(List<Book> books) {
+        // Set-based de-duplication within the batch (first occurrence wins)
+        Map<String, Book> byTitle = new LinkedHashMap<>();
+        for (Book book : books) {
+            if (book.title() == null) {
+                continue;
+            }
+            // Handle ID generation if null
+            Book withId = (book.id() == null || book.id().isEmpty())
+                    ? new Book(UUID.randomUUID().toString(), book.title(), book.author(), book.summary(),
+                            book.genre(), book.publicationYear(), book.imageUrl(), false,
+                            book.tableOfContents(), book.textUrl())
+                    : book;
+            byTitle.putIfAbsent(withId.title(), withId);
         }
+        if (byTitle.isEmpty()) {
+            return List.of();
+        }
+        List<Book> batch = new ArrayList<>(byTitle.values());
 
-        // Handle ID generation if null
-        UUID id = (book.id() == null || book.id().isEmpty()) ? UUID.randomUUID() : UUID.fromString(book.id());
-
-        jdbcClient.sql(
-                "INSERT INTO books (id, title, author, summary, genre, publication_year, image_url, has_content, table_of_contents, text_url) VALUES (:id, :title, :author, :summary, :genre, :publicationYear, :imageUrl, :hasContent, :tableOfContents, :textUrl)")
-                .param("id", id)
-                .param("title", book.title())
-                .param("author", book.author())
-                .param("summary", book.summary())
-                .param("genre", book.genre())
-                .param("publicationYear", book.publicationYear())
-                .param("imageUrl", book.imageUrl())
-                .param("hasContent", false) // Default to false for new books
-                .param("tableOfContents",
-                        book.tableOfContents() != null ? book.tableOfContents().toArray(new String[0]) : new String[0])
-                .param("textUrl", book.textUrl())
-                .update();
+        String sql = """
+                INSERT INTO books (id, title, author, summary, genre, publication_year, image_url, has_content, table_of_contents, text_url)
+                SELECT t.id, t.title, t.author, t.summary, t.genre, t.publication_year, t.image_url, false,
+                       ARRAY(SELECT json_array_elements_text(t.toc::json)), t.text_url
+                FROM unnest(:ids::uuid[], :titles::text[], :authors::text[], :summaries::text[], :genres::text[],
+                            :years::int[], :imageUrls::text[], :tocs::text[], :textUrls::text[])
+                     AS t(id, title, author, summary, genre, publication_year, image_url, toc, text_url)
+                ON CONFLICT DO NOTHING
+                RETURNING id
+                """;
+
+        Set<String> insertedIds = new HashSet<>(jdbcClient.sql(sql)
+                .param("ids", batch.stream().map(Book::id).toArray(String[]::new))
+                .param("titles", batch.stream().map(Book::title).toArray(String[]::new))
+                .param("authors", batch.stream().map(Book::author).toArray(String[]::new))
+                .param("summaries", batch.stream().map(Book::summary).toArray(String[]::new))
+                .param("genres", batch.stream().map(Book::genre).toArray(String[]::new))
+                .param("years", batch.stream().map(Book::publicationYear).toArray(Integer[]::new))
+                .param("imageUrls", batch.stream().map(Book::imageUrl).toArray(String[]::new))
+                .param("tocs", batch.stream().map(this::tocToJson).toArray(String[]::new))
+                .param("textUrls", batch.stream().map(Book::textUrl).toArray(String[]::new))
+                .query((rs, rowNum) -> rs.getString("id"))
+                .list());
+
+        return batch.stream()
+                .filter(book -> insertedIds.contains(UUID.fromString(book.id()).toString()))
+                .toList();
+    }
+
+    private String tocToJson(Book book) {
+        try {
+            return objectMapper.writeValueAsString(
+                    book.tableOfContents() != null ? book.tableOfContents() : List.of());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize table of contents", e);
+        }
     }
 
     public void updateHasContent(String id, boolean hasContent) {
@@ -91,4 +147,11 @@ public class BookRepository {
                 .param("hasContent", hasContent)
                 .update();
     }
+
+    public void updateTableOfContents(String id, List<String> tableOfContents) {
+        jdbcClient.sql("UPDATE books SET table_of_contents = :tableOfContents WHERE id = :id")
+                .param("id", UUID.fromString(id))
+                .param("tableOfContents", tableOfContents.toArray(new String[0]))
+                .update();
+    }
 }
@@ -0,0 +1,72 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes catalog vectors to {@code vector_store}, one vector per embedding
+ * space being written (see {@link EmbeddingSpaces}). Same row layout and
+ * upsert-by-id as {@code PgVectorStore}, which only knows a single
+ * {@code embedding} column.
+ */
+@Repository
+public class CatalogVectorRepository {
+
+    private final JdbcClient jdbcClient;
+    private final EmbeddingSpaces embeddingSpaces;
+    private final ObjectMapper objectMapper;
+
+    public CatalogVectorRepository(JdbcClient jdbcClient, EmbeddingSpaces embeddingSpaces,
+            ObjectMapper objectMapper) {
+        this.jdbcClient = jdbcClient;
+        this.embeddingSpaces = embeddingSpaces;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Embeds {@code documents} in one batch per space and inserts or replaces them by id. */
+    public void upsert(List<Document> documents) {
+        Map<Space, List<float[]>> embeddings = embeddingSpaces.embedForWrite(documents.stream()
+                .map(Document::getText)
+                .toList());
+
+        for (int i = 0; i < documents.size(); i++) {
+            Document doc = documents.get(i);
+            Map<Space, float[]> row = EmbeddingSpaces.row(embeddings, i);
+            String updates = row.keySet().stream()
+                    .map(space -> space.column() + " = EXCLUDED." + space.column())
+                    .collect(Collectors.joining(", ", ", ", ""));
+            String sql = "INSERT INTO vector_store (id, content, metadata, " + EmbeddingSpaceRepository.columns(row)
+                    + ") VALUES (:id::uuid, :content, :metadata::json, " + EmbeddingSpaceRepository.values(row) + ")"
+                    + " ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, metadata = EXCLUDED.metadata"
+                    + updates;
+            try {
+                EmbeddingSpaceRepository.bind(jdbcClient.sql(sql)
+                        .param("id", doc.getId())
+                        .param("content", doc.getText())
+                        .param("metadata", objectMapper.writeValueAsString(doc.getMetadata())), row)
+                        .update();
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to serialize metadata", e);
+            }
+        }
+    }
+
+    public void delete(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcClient.sql("DELETE FROM vector_store WHERE id = ANY(:ids::uuid[])")
+                .param("ids", ids.toArray(new String[0]))
+                .update();
+    }
+}
@@ -1,39 +1,63 @@
 package com.springai.semanticbooksearchlive.repository;
 
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingGateway;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.util.VectorUtils;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Repository
 public class DebateContentRepository {
 
+    private static final StageMetrics.Feature FEATURE = StageMetrics.Feature.DEBATE;
+
+    // Candidate pool handed to RagContextBuilder, which trims it to the token budget
+    private static final int CANDIDATE_LIMIT = 8;
+
     private final JdbcClient jdbcClient;
-    private final EmbeddingModel embeddingModel;
+    private final EmbeddingSpaces embeddingSpaces;
     private final ObjectMapper objectMapper;
+    private final HnswSearch hnswSearch;
+    private final StageMetrics stageMetrics;
 
-    public DebateContentRepository(JdbcClient jdbcClient, EmbeddingModel embeddingModel, ObjectMapper objectMapper) {
+    public DebateContentRepository(JdbcClient jdbcClient, EmbeddingSpaces embeddingSpaces, ObjectMapper objectMapper,
+            HnswSearch hnswSearch, StageMetrics stageMetrics) {
         this.jdbcClient = jdbcClient;
-        this.embeddingModel = embeddingModel;
+        this.embeddingSpaces = embeddingSpaces;
         this.objectMapper = objectMapper;
+        this.hnswSearch = hnswSearch;
+        this.stageMetrics = stageMetrics;
     }
 
     public void add(List<Document> documents) {
-        String sql = "INSERT INTO debate_vector_store (content, metadata, embedding) VALUES (:content, :metadata::json, :embedding::vector)";
+        // One batched call per upload and space, admitted as bulk work so searches go first
+        Map<Space, List<float[]>> embeddings = stageMetrics.time(StageMetrics.Stage.BATCH_EMBEDDING, FEATURE,
+                () -> EmbeddingGateway.bulk(() -> embeddingSpaces.embedForWrite(documents.stream()
+                        .map(Document::getText)
+                        .collect(Collectors.toList()))));
 
-        for (Document doc : documents) {
-            float[] embedding = embeddingModel.embed(doc.getText());
+        for (int i = 0; i < documents.size(); i++) {
+            Document doc = documents.get(i);
+            Map<Space, float[]> row = EmbeddingSpaces.row(embeddings, i);
+            String sql = "INSERT INTO debate_vector_store (content, metadata, "
+                    + EmbeddingSpaceRepository.columns(row) + ") VALUES (:content, :metadata::json, "
+                    + EmbeddingSpaceRepository.values(row) + ")";
             try {
                 String metadataJson = objectMapper.writeValueAsString(doc.getMetadata());
-                jdbcClient.sql(sql)
+                EmbeddingSpaceRepository.bind(jdbcClient.sql(sql)
                         .param("content", doc.getText())
-                        .param("metadata", metadataJson)
-                        .param("embedding", java.util.Arrays.toString(embedding))
+                        .param("metadata", metadataJson), row)
                         .update();
             } catch (JsonProcessingException e) {
                 throw new RuntimeException("Failed to serialize metadata", e);
@@ -42,28 +66,43 @@ public class DebateContentRepository {
     }
 
     public List<Document> similaritySearch(String sessionId, String fileLabel, String query) {
-        float[] embedding = embeddingModel.embed(query);
+        return similaritySearch(sessionId, fileLabel, query, null);
+    }
+
+    /**
+     * @param efSearch HNSW {@code ef_search} for this query; null for the
+     *                 configured default
+     */
+    public List<Document> similaritySearch(String sessionId, String fileLabel, String query, Integer efSearch) {
+        Space space = embeddingSpaces.read();
+        float[] embedding = stageMetrics.time(StageMetrics.Stage.QUERY_EMBEDDING, FEATURE,
+                () -> embeddingSpaces.embedQuery(space, query));
         System.out.println("Searching debate content for session: " + sessionId + ", label: " + fileLabel);
-        String sql = """
-                SELECT content, metadata
+        String sql = space.nearest("""
+                SELECT content, metadata, {column}::text AS embedding,
+                       {column} <=> :embedding::vector AS distance
                 FROM debate_vector_store
                 WHERE (metadata->>'session_id') = :sessionId
                 AND (metadata->>'file_label') = :fileLabel
-                ORDER BY embedding <=> :embedding::vector
-                LIMIT 3
-                """;
+                """, ":limit");
 
-        return jdbcClient.sql(sql)
-                .param("sessionId", sessionId)
-                .param("fileLabel", fileLabel)
-                .param("embedding", java.util.Arrays.toString(embedding))
-                .query((rs, rowNum) -> {
-                    String content = rs.getString("content");
-                    String metadataJson = rs.getString("metadata");
-                    Map<String, Object> metadata = parseMetadata(metadataJson);
-                    return new Document(content, metadata);
-                })
-                .list();
+        return stageMetrics.time(StageMetrics.Stage.VECTOR_QUERY, FEATURE,
+                () -> hnswSearch.query(HnswSearch.Index.DEBATE, efSearch, space.scanLimit(CANDIDATE_LIMIT),
+                        () -> jdbcClient.sql(sql)
+                                .param("sessionId", sessionId)
+                                .param("fileLabel", fileLabel)
+                                .param("embedding", Arrays.toString(embedding))
+                                .param("limit", CANDIDATE_LIMIT)
+                                .query((rs, rowNum) -> {
+                                    String content = rs.getString("content");
+                                    String metadataJson = rs.getString("metadata");
+                                    Map<String, Object> metadata = new HashMap<>(parseMetadata(metadataJson));
+                                    metadata.put("distance", rs.getDouble("distance"));
+                                    metadata.put(VectorUtils.EMBEDDING_METADATA_KEY,
+                                            VectorUtils.parseVector(rs.getString("embedding")));
+                                    return new Document(content, metadata);
+                                })
+                                .list()));
     }
 
     private Map<String, Object> parseMetadata(String json) {
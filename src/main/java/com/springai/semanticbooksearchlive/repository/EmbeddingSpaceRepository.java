@@ -0,0 +1,293 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Embedding space state and the per-space vector columns.
+ * <p>
+ * {@code embedding_space_state} holds a single row: the space reads use, the
+ * space being migrated to, and the space read before the last switch-over.
+ * Every vector table has one column per space in use.
+ * </p>
+ */
+@Repository
+public class EmbeddingSpaceRepository {
+
+    public static final String CATALOG_TABLE = "vector_store";
+    public static final String CHAPTER_TABLE = "book_chapter_vector_store";
+    public static final List<String> VECTOR_TABLES = List.of(CATALOG_TABLE, "book_content_vector_store",
+            CHAPTER_TABLE, "study_material_vector_store", "debate_vector_store");
+
+    // The provider rejects empty input, so rows without text never get a vector
+    private static final String EMBEDDABLE = "content IS NOT NULL AND btrim(content) <> ''";
+
+    private final JdbcClient jdbcClient;
+
+    public EmbeddingSpaceRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    public record SpaceState(String readSpace, String targetSpace, String previousSpace) {
+    }
+
+    /** A row still missing its vector in some space. */
+    public record PendingRow(String id, String content) {
+    }
+
+    /** Column list for inserting one vector per space of {@code embeddings}. */
+    public static String columns(Map<Space, float[]> embeddings) {
+        return embeddings.keySet().stream().map(Space::column).collect(Collectors.joining(", "));
+    }
+
+    /** Placeholders matching {@link #columns(Map)}, bound by {@link #bind}. */
+    public static String values(Map<Space, float[]> embeddings) {
+        return embeddings.keySet().stream()
+                .map(space -> ":" + space.column() + "::vector")
+                .collect(Collectors.joining(", "));
+    }
+
+    public static JdbcClient.StatementSpec bind(JdbcClient.StatementSpec statement,
+            Map<Space, float[]> embeddings) {
+        for (Map.Entry<Space, float[]> entry : embeddings.entrySet()) {
+            statement = statement.param(entry.getKey().column(), Arrays.toString(entry.getValue()));
+        }
+        return statement;
+    }
+
+    public void initState(String readSpace) {
+        jdbcClient.sql("""
+                INSERT INTO embedding_space_state (id, read_space) VALUES (true, :readSpace)
+                ON CONFLICT (id) DO NOTHING
+                """)
+                .param("readSpace", readSpace)
+                .update();
+    }
+
+    public SpaceState findState() {
+        return jdbcClient.sql("SELECT read_space, target_space, previous_space FROM embedding_space_state")
+                .query((rs, rowNum) -> new SpaceState(
+                        rs.getString("read_space"),
+                        rs.getString("target_space"),
+                        rs.getString("previous_space")))
+                .single();
+    }
+
+    /** @return false if reads are no longer on {@code from} */
+    public boolean startMigration(String from, String to) {
+        return jdbcClient.sql("""
+                UPDATE embedding_space_state
+                SET target_space = :to, previous_space = NULL, updated_at = CURRENT_TIMESTAMP
+                WHERE read_space = :from
+                """)
+                .param("from", from)
+                .param("to", to)
+                .update() == 1;
+    }
+
+    /** Stops writing any space but the read space. */
+    public void finishMigration() {
+        jdbcClient.sql("""
+                UPDATE embedding_space_state
+                SET target_space = NULL, previous_space = NULL, updated_at = CURRENT_TIMESTAMP
+                """)
+                .update();
+    }
+
+    /**
+     * Switches reads from {@code from} to {@code to}, provided no row of any
+     * vector table lacks a {@code to} vector. The check and the switch are one
+     * statement, so a row written meanwhile cannot slip through uncovered.
+     *
+     * @return false if the migration changed meanwhile or is not complete
+     */
+    public boolean switchReads(Space from, Space to) {
+        String coverage = VECTOR_TABLES.stream()
+                .map(table -> "AND NOT EXISTS (SELECT 1 FROM " + table + " WHERE " + missing(table, to) + ")")
+                .collect(Collectors.joining("\n"));
+        return jdbcClient.sql("""
+                UPDATE embedding_space_state
+                SET read_space = :to, target_space = NULL, previous_space = :from,
+                    updated_at = CURRENT_TIMESTAMP
+                WHERE read_space = :from AND target_space = :to
+                """ + coverage)
+                .param("from", from.name())
+                .param("to", to.name())
+                .update() == 1;
+    }
+
+    /**
+     * Claims the backfill for {@code lease}, so only one instance re-embeds at
+     * a time. Renewed by calling again before it runs out.
+     */
+    public boolean tryLease(String owner, Duration lease) {
+        return jdbcClient.sql("""
+                UPDATE embedding_space_state
+                SET backfill_owner = :owner,
+                    backfill_until = CURRENT_TIMESTAMP + make_interval(secs => :seconds)
+                WHERE backfill_owner IS NULL OR backfill_owner = :owner OR backfill_until < CURRENT_TIMESTAMP
+                """)
+                .param("owner", owner)
+                .param("seconds", lease.toSeconds())
+                .update() == 1;
+    }
+
+    /** Adds {@code space}'s column to every vector table; a no-op where it exists. */
+    public void addColumn(Space space) {
+        for (String table : VECTOR_TABLES) {
+            jdbcClient.sql("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + space.column()
+                    + " vector(" + space.dimensions() + ")")
+                    .update();
+        }
+    }
+
+    /**
+     * Declared dimension of {@code space}'s column in {@code table}, or null
+     * if the table has no such column.
+     */
+    public Integer findColumnDimensions(String table, Space space) {
+        // pgvector keeps a vector(n) column's dimension as its type modifier
+        return jdbcClient.sql("""
+                SELECT atttypmod FROM pg_attribute
+                WHERE attrelid = to_regclass(:table) AND attname = :column AND NOT attisdropped
+                """)
+                .param("table", table)
+                .param("column", space.column())
+                .query(Integer.class)
+                .optional()
+                .orElse(null);
+    }
+
+    /**
+     * Builds the HNSW index searches in {@code space} use (see
+     * {@link Space#indexedExpression()}) on every vector table without blocking
+     * writes; a no-op where it exists. An index left invalid by an interrupted
+     * build is dropped and built again.
+     * <p>
+     * Once every index is in place, the other HNSW indexes on the space's
+     * column are dropped, since no search reads them: the full-vector index
+     * left behind when a shortlist prefix is configured, or the index of an
+     * earlier prefix length. They would only slow down writes.
+     * </p>
+     */
+    public void createIndexes(Space space) {
+        for (String table : VECTOR_TABLES) {
+            String index = space.indexName(table);
+            Boolean valid = jdbcClient.sql("""
+                    SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                    WHERE c.relname = :index
+                    """)
+                    .param("index", index)
+                    .query(Boolean.class)
+                    .optional()
+                    .orElse(null);
+            if (Boolean.TRUE.equals(valid)) {
+                continue;
+            }
+            if (valid != null) {
+                jdbcClient.sql("DROP INDEX CONCURRENTLY IF EXISTS " + index).update();
+            }
+            jdbcClient.sql("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index + " ON " + table
+                    + " USING HNSW (" + space.indexedExpression() + " vector_cosine_ops)")
+                    .update();
+        }
+        dropUnusedIndexes(space);
+    }
+
+    private void dropUnusedIndexes(Space space) {
+        for (String table : VECTOR_TABLES) {
+            // Names createIndexes() gives this column's indexes, for any prefix length
+            Pattern ownIndex = Pattern.compile(Pattern.quote("idx_" + table + "_" + space.column()) + "(_s\\d+)?");
+            List<String> unused = jdbcClient.sql("""
+                    SELECT indexname FROM pg_indexes
+                    WHERE tablename = :table AND indexdef ILIKE '%USING hnsw%'
+                    """)
+                    .param("table", table)
+                    .query(String.class)
+                    .list()
+                    .stream()
+                    .filter(index -> ownIndex.matcher(index).matches() && !index.equals(space.indexName(table)))
+                    .toList();
+            for (String index : unused) {
+                jdbcClient.sql("DROP INDEX CONCURRENTLY IF EXISTS " + index).update();
+            }
+        }
+    }
+
+    public long countRows(String table) {
+        return jdbcClient.sql("SELECT count(*) FROM " + table).query(Long.class).single();
+    }
+
+    public long countMissing(String table, Space space) {
+        return jdbcClient.sql("SELECT count(*) FROM " + table + " WHERE " + missing(table, space))
+                .query(Long.class)
+                .single();
+    }
+
+    public List<PendingRow> findMissing(String table, Space space, int limit) {
+        return jdbcClient.sql("SELECT id, content FROM " + table + " WHERE " + missing(table, space)
+                + " LIMIT :limit")
+                .param("limit", limit)
+                .query((rs, rowNum) -> new PendingRow(rs.getString("id"), rs.getString("content")))
+                .list();
+    }
+
+    /** Stores backfilled vectors; rows that got theirs from a write meanwhile are left alone. */
+    public int updateVectors(String table, Space space, List<String> ids, List<float[]> vectors) {
+        return jdbcClient.sql("UPDATE " + table + " t SET " + space.column() + " = v.embedding::vector"
+                + " FROM unnest(:ids::uuid[], :vectors::text[]) AS v(id, embedding)"
+                + " WHERE t.id = v.id AND t." + space.column() + " IS NULL")
+                .param("ids", ids.toArray(new String[0]))
+                .param("vectors", vectors.stream().map(Arrays::toString).toArray(String[]::new))
+                .update();
+    }
+
+    /**
+     * Fills chapter vectors in {@code space} from their chunks, the same
+     * normalised centroid ingestion computes, once every chunk of the chapter
+     * with text has its vector. Costs no embedding calls.
+     */
+    public int backfillChapterCentroids(Space space) {
+        return jdbcClient.sql(space.sql("""
+                UPDATE book_chapter_vector_store c
+                SET {column} = l2_normalize(s.centroid)
+                FROM (
+                    SELECT (metadata->>'book_id') AS book_id, (metadata->>'chapter_id') AS chapter_id,
+                           avg({column}) AS centroid
+                    FROM book_content_vector_store
+                    WHERE (metadata->>'chapter_id') IS NOT NULL
+                    AND content IS NOT NULL AND btrim(content) <> ''
+                    GROUP BY 1, 2
+                    HAVING count(*) = count({column})
+                ) s
+                WHERE c.{column} IS NULL
+                AND (c.metadata->>'book_id') = s.book_id
+                AND (c.metadata->>'chapter_id') = s.chapter_id
+                """))
+                .update();
+    }
+
+    /**
+     * Condition for rows of {@code table} still to be given a vector in
+     * {@code space}. Rows without text are left out: they can never be
+     * embedded, and a backfill retrying them would never reach the switch.
+     * A chapter is missing only while one of its chunks has text.
+     */
+    private static String missing(String table, Space space) {
+        if (table.equals(CHAPTER_TABLE)) {
+            return space.sql(CHAPTER_TABLE + ".{column} IS NULL AND EXISTS (SELECT 1 FROM book_content_vector_store b"
+                    + " WHERE (b.metadata->>'book_id') = (" + CHAPTER_TABLE + ".metadata->>'book_id')"
+                    + " AND (b.metadata->>'chapter_id') = (" + CHAPTER_TABLE + ".metadata->>'chapter_id')"
+                    + " AND " + EMBEDDABLE + ")");
+        }
+        return space.column() + " IS NULL AND " + EMBEDDABLE;
+    }
+}
@@ -0,0 +1,102 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs nearest-neighbour queries with a chosen {@code hnsw.ef_search}.
+ * <p>
+ * {@code ef_search} is the size of the HNSW candidate list: higher values
+ * raise recall and latency. Each index has its own default
+ * ({@code vector.hnsw.ef-search.<index>}, falling back to
+ * {@code vector.hnsw.ef-search}), and callers can override it per request.
+ * The value is set with {@code set_config(..., true)} inside a read-only
+ * transaction around the query, so it never leaks to other users of the
+ * pooled connection. An HNSW scan returns at most {@code ef_search} rows, so
+ * values below the query's row limit are raised to it.
+ * </p>
+ * <p>
+ * Metadata filters (book, chapter, course, session) are applied after the index
+ * scan, so a plain scan can return fewer rows than the limit when the nearest
+ * {@code ef_search} candidates mostly belong elsewhere. Queries therefore also
+ * run with {@code hnsw.iterative_scan} ({@code vector.hnsw.iterative-scan},
+ * pgvector 0.8+), which keeps scanning the index until the limit is filled;
+ * {@code strict_order} keeps results in distance order. It has no effect on
+ * unfiltered queries.
+ * </p>
+ * <p>
+ * The defaults should come from {@code HnswRecallBenchmark} runs against real
+ * data, not guesses.
+ * </p>
+ */
+@Component
+public class HnswSearch {
+
+    public enum Index {
+        CATALOG,
+        BOOK_CONTENT,
+        STUDY_MATERIAL,
+        DEBATE;
+
+        String propertyKey() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    // pgvector's accepted range for hnsw.ef_search
+    private static final int MIN_EF_SEARCH = 1;
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private final JdbcClient jdbcClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Index, Integer> defaults = new EnumMap<>(Index.class);
+    private final String iterativeScan;
+
+    public HnswSearch(JdbcClient jdbcClient, PlatformTransactionManager transactionManager, Environment environment,
+            @Value("${vector.hnsw.ef-search:40}") int defaultEfSearch,
+            @Value("${vector.hnsw.iterative-scan:strict_order}") String iterativeScan) {
+        this.jdbcClient = jdbcClient;
+        this.iterativeScan = iterativeScan;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        for (Index index : Index.values()) {
+            defaults.put(index, environment.getProperty("vector.hnsw.ef-search." + index.propertyKey(),
+                    Integer.class, defaultEfSearch));
+        }
+    }
+
+    public int efSearch(Index index) {
+        return defaults.get(index);
+    }
+
+    /**
+     * Runs {@code query} with {@code ef_search} and the iterative scan mode set
+     * for its transaction.
+     *
+     * @param efSearch per-request override; null for the index default
+     * @param limit    number of rows the query takes from the index scan
+     */
+    public <T> T query(Index index, Integer efSearch, int limit, Supplier<T> query) {
+        int value = Math.max(efSearch != null ? efSearch : efSearch(index), limit);
+        int effective = Math.max(MIN_EF_SEARCH, Math.min(value, MAX_EF_SEARCH));
+        return transactionTemplate.execute(status -> {
+            jdbcClient.sql("""
+                    SELECT set_config('hnsw.ef_search', :value, true),
+                           set_config('hnsw.iterative_scan', :iterativeScan, true)
+                    """)
+                    .param("value", String.valueOf(effective))
+                    .param("iterativeScan", iterativeScan)
+                    .query((rs, rowNum) -> rs.getString(1))
+                    .single();
+            return query.get();
+        });
+    }
+}
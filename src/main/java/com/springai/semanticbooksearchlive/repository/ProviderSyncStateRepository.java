@@ -0,0 +1,60 @@
+package com.springai.semanticbooksearchlive.repository;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+@Repository
+public class ProviderSyncStateRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public ProviderSyncStateRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    public Set<String> findSyncedBookIds(String provider) {
+        return new HashSet<>(jdbcClient.sql("SELECT book_id FROM provider_synced_books WHERE provider = :provider")
+                .param("provider", provider)
+                .query((rs, rowNum) -> rs.getString("book_id"))
+                .list());
+    }
+
+    public Set<Integer> findPagesSyncedWithin(String provider, Duration maxAge) {
+        return new HashSet<>(jdbcClient.sql("""
+                SELECT page FROM provider_page_state
+                WHERE provider = :provider AND synced_at > :since
+                """)
+                .param("provider", provider)
+                .param("since", Timestamp.from(Instant.now().minus(maxAge)))
+                .query((rs, rowNum) -> rs.getInt("page"))
+                .list());
+    }
+
+    public void markPageSynced(String provider, int page, Collection<String> bookIds) {
+        if (!bookIds.isEmpty()) {
+            jdbcClient.sql("""
+                    INSERT INTO provider_synced_books (provider, book_id)
+                    SELECT :provider, b FROM unnest(:bookIds::text[]) AS t(b)
+                    ON CONFLICT DO NOTHING
+                    """)
+                    .param("provider", provider)
+                    .param("bookIds", bookIds.toArray(new String[0]))
+                    .update();
+        }
+        jdbcClient.sql("""
+                INSERT INTO provider_page_state (provider, page, synced_at)
+                VALUES (:provider, :page, CURRENT_TIMESTAMP)
+                ON CONFLICT (provider, page) DO UPDATE SET synced_at = EXCLUDED.synced_at
+                """)
+                .param("provider", provider)
+                .param("page", page)
+                .update();
+    }
+}
@@ -1,71 +1,309 @@
 package com.springai.semanticbooksearchlive.repository.book;
 
+import com.springai.semanticbooksearchlive.model.BookChapter;
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository;
+import com.springai.semanticbooksearchlive.repository.HnswSearch;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingGateway;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.util.VectorUtils;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+/**
+ * Two-level vector index for "talk to the book".
+ * <p>
+ * Every chunk lives in {@code book_content_vector_store} tagged with its
+ * {@code chapter_id}. Every chapter has one row in
+ * {@code book_chapter_vector_store} whose embedding is the normalised centroid
+ * of its chunk embeddings, so the chapter level costs no extra embedding calls.
+ * Queries pick the best chapters first and then rank only their chunks.
+ * </p>
+ * <p>
+ * Vectors are read from the current read space and written to every space in
+ * use (see {@link EmbeddingSpaces}). Every nearest-neighbour scan goes through
+ * {@link Space#nearest}, so it is shortlisted on prefix vectors where the
+ * space has them.
+ * </p>
+ */
 @Repository
 public class BookContentRepository {
 
+    private static final StageMetrics.Feature FEATURE = StageMetrics.Feature.BOOK_CHAT;
+
+    private static final int DEFAULT_CHAPTER_LIMIT = 3;
+    // Candidate pool handed to RagContextBuilder, which trims it to the token budget
+    private static final int DEFAULT_CHUNK_LIMIT = 12;
+
     private final JdbcClient jdbcClient;
-    private final EmbeddingModel embeddingModel;
+    private final EmbeddingSpaces embeddingSpaces;
     private final ObjectMapper objectMapper;
+    private final HnswSearch hnswSearch;
+    private final StageMetrics stageMetrics;
 
-    public BookContentRepository(JdbcClient jdbcClient, EmbeddingModel embeddingModel, ObjectMapper objectMapper) {
+    public BookContentRepository(JdbcClient jdbcClient, EmbeddingSpaces embeddingSpaces, ObjectMapper objectMapper,
+            HnswSearch hnswSearch, StageMetrics stageMetrics) {
         this.jdbcClient = jdbcClient;
-        this.embeddingModel = embeddingModel;
+        this.embeddingSpaces = embeddingSpaces;
         this.objectMapper = objectMapper;
+        this.hnswSearch = hnswSearch;
+        this.stageMetrics = stageMetrics;
     }
 
     public List<Document> similaritySearch(String bookId, String query) {
-        float[] embedding = embeddingModel.embed(query);
+        return similaritySearch(bookId, query, null);
+    }
 
-        String sql = """
-                SELECT content, metadata
+    public List<Document> similaritySearch(String bookId, String query, String chapterId) {
+        return similaritySearch(bookId, query, chapterId, null);
+    }
+
+    /**
+     * Hierarchical search: best chapters first, then their chunks.
+     *
+     * @param chapterId optional chapter to pin the search to; when null the
+     *                  top chapters are selected by similarity
+     * @param efSearch  HNSW {@code ef_search} for this query; null for the
+     *                  configured default
+     */
+    public List<Document> similaritySearch(String bookId, String query, String chapterId, Integer efSearch) {
+        Space space = embeddingSpaces.read();
+        float[] embedding = stageMetrics.time(StageMetrics.Stage.QUERY_EMBEDDING, FEATURE,
+                () -> embeddingSpaces.embedQuery(space, query));
+
+        if (chapterId != null && !chapterId.isBlank()) {
+            String sql = space.nearest("""
+                    SELECT content, metadata, {column}::text AS embedding,
+                           {column} <=> :embedding::vector AS distance
+                    FROM book_content_vector_store
+                    WHERE (metadata->>'book_id') = :bookId
+                    AND (metadata->>'chapter_id') = :chapterId
+                    """, ":limit");
+
+            return stageMetrics.time(StageMetrics.Stage.VECTOR_QUERY, FEATURE,
+                    () -> hnswSearch.query(HnswSearch.Index.BOOK_CONTENT, efSearch,
+                            space.scanLimit(DEFAULT_CHUNK_LIMIT),
+                            () -> jdbcClient.sql(sql)
+                                    .param("bookId", bookId)
+                                    .param("chapterId", chapterId)
+                                    .param("embedding", Arrays.toString(embedding))
+                                    .param("limit", DEFAULT_CHUNK_LIMIT)
+                                    .query((rs, rowNum) -> mapScoredDocument(rs))
+                                    .list()));
+        }
+
+        // Books ingested before chapters existed have no chapter rows; in that case
+        // the chapter filter is skipped and the whole book is ranked as before.
+        String sql = "WITH top_chapters AS (\n" + space.nearest("""
+                    SELECT (metadata->>'chapter_id') AS chapter_id,
+                           {column} <=> :embedding::vector AS distance
+                    FROM book_chapter_vector_store
+                    WHERE (metadata->>'book_id') = :bookId
+                    """, ":chapterLimit") + ")\n" + space.nearest("""
+                SELECT content, metadata, {column}::text AS embedding,
+                       {column} <=> :embedding::vector AS distance
                 FROM book_content_vector_store
                 WHERE (metadata->>'book_id') = :bookId
-                ORDER BY embedding <=> :embedding::vector
-                LIMIT 5
+                AND (NOT EXISTS (SELECT 1 FROM top_chapters)
+                     OR (metadata->>'chapter_id') IN (SELECT chapter_id FROM top_chapters))
+                """, ":limit");
+
+        // One ef_search for both scans (chapters, then chunks) of the statement
+        return stageMetrics.time(StageMetrics.Stage.VECTOR_QUERY, FEATURE,
+                () -> hnswSearch.query(HnswSearch.Index.BOOK_CONTENT, efSearch, space.scanLimit(DEFAULT_CHUNK_LIMIT),
+                        () -> jdbcClient.sql(sql)
+                                .param("bookId", bookId)
+                                .param("embedding", Arrays.toString(embedding))
+                                .param("chapterLimit", DEFAULT_CHAPTER_LIMIT)
+                                .param("limit", DEFAULT_CHUNK_LIMIT)
+                                .query((rs, rowNum) -> mapScoredDocument(rs))
+                                .list()));
+    }
+
+    /**
+     * Library-wide passage search grouped per book, in a single query plan.
+     * <p>
+     * A nearest-neighbour candidate set is taken from the HNSW index, then
+     * window functions keep the best {@code passagesPerBook} chunks of each book
+     * and the {@code bookLimit} books with the closest passage.
+     * </p>
+     *
+     * @param efSearch HNSW {@code ef_search} for this query; null for the
+     *                 configured default
+     * @return passages ordered by book (best book first) then by rank within the
+     *         book; each document carries {@code distance} in its metadata
+     */
+    public List<Document> searchAcrossBooks(String query, int bookLimit, int passagesPerBook, Integer efSearch) {
+        Space space = embeddingSpaces.read();
+        float[] embedding = stageMetrics.time(StageMetrics.Stage.QUERY_EMBEDDING, FEATURE,
+                () -> embeddingSpaces.embedQuery(space, query));
+
+        String sql = "WITH candidates AS (\n" + space.nearest("""
+                    SELECT content, metadata, (metadata->>'book_id') AS book_id,
+                           {column} <=> :embedding::vector AS distance
+                    FROM book_content_vector_store
+                    """, ":candidateLimit") + """
+                ),
+                ranked AS (
+                    SELECT content, metadata, book_id, distance,
+                           ROW_NUMBER() OVER (PARTITION BY book_id ORDER BY distance) AS rank_in_book,
+                           MIN(distance) OVER (PARTITION BY book_id) AS book_distance
+                    FROM candidates
+                ),
+                top_books AS (
+                    SELECT DISTINCT book_id, book_distance
+                    FROM ranked
+                    ORDER BY book_distance
+                    LIMIT :bookLimit
+                )
+                SELECT r.content, r.metadata, r.distance
+                FROM ranked r
+                JOIN top_books t ON t.book_id = r.book_id
+                WHERE r.rank_in_book <= :passagesPerBook
+                ORDER BY t.book_distance, r.rank_in_book
+                """;
+
+        int candidateLimit = Math.max(40, bookLimit * passagesPerBook * 4);
+        return stageMetrics.time(StageMetrics.Stage.VECTOR_QUERY, FEATURE,
+                () -> hnswSearch.query(HnswSearch.Index.BOOK_CONTENT, efSearch, space.scanLimit(candidateLimit),
+                        () -> jdbcClient.sql(sql)
+                                .param("embedding", Arrays.toString(embedding))
+                                .param("candidateLimit", candidateLimit)
+                                .param("bookLimit", bookLimit)
+                                .param("passagesPerBook", passagesPerBook)
+                                .query((rs, rowNum) -> {
+                                    Map<String, Object> metadata = new HashMap<>(
+                                            parseMetadata(rs.getString("metadata")));
+                                    metadata.put("distance", rs.getDouble("distance"));
+                                    return new Document(rs.getString("content"), metadata);
+                                })
+                                .list()));
+    }
+
+    public List<BookChapter> findChapters(String bookId) {
+        String sql = """
+                SELECT metadata
+                FROM book_chapter_vector_store
+                WHERE (metadata->>'book_id') = :bookId
+                ORDER BY ((metadata->>'chapter_index')::int)
                 """;
 
         return jdbcClient.sql(sql)
                 .param("bookId", bookId)
-                .param("embedding", java.util.Arrays.toString(embedding))
                 .query((rs, rowNum) -> {
-                    String content = rs.getString("content");
-                    String metadataJson = rs.getString("metadata");
-                    Map<String, Object> metadata = parseMetadata(metadataJson);
-                    return new Document(content, metadata);
+                    Map<String, Object> metadata = parseMetadata(rs.getString("metadata"));
+                    Object chunkCount = metadata.getOrDefault("chunk_count", 0);
+                    return new BookChapter(
+                            (String) metadata.getOrDefault("chapter_id", ""),
+                            (String) metadata.getOrDefault("chapter_title", ""),
+                            chunkCount instanceof Number ? ((Number) chunkCount).intValue() : 0);
                 })
                 .list();
     }
 
+    /**
+     * Stores the chunks of one chapter and its centroid chapter vector.
+     * Chunk embeddings are requested in a single batch call.
+     */
+    public void addChapter(String bookId, String chapterId, int chapterIndex, String chapterTitle,
+            List<Document> chunks) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        Map<Space, List<float[]>> embeddings = stageMetrics.time(StageMetrics.Stage.BATCH_EMBEDDING, FEATURE,
+                () -> EmbeddingGateway.bulk(() -> embeddingSpaces.embedForWrite(chunks.stream()
+                        .map(Document::getText)
+                        .collect(Collectors.toList()))));
+
+        for (int i = 0; i < chunks.size(); i++) {
+            Document doc = chunks.get(i);
+            doc.getMetadata().put("chapter_id", chapterId);
+            insert("book_content_vector_store", doc.getText(), doc.getMetadata(), EmbeddingSpaces.row(embeddings, i));
+        }
+
+        Map<String, Object> chapterMetadata = new HashMap<>();
+        chapterMetadata.put("book_id", bookId);
+        chapterMetadata.put("chapter_id", chapterId);
+        chapterMetadata.put("chapter_index", chapterIndex);
+        chapterMetadata.put("chapter_title", chapterTitle);
+        chapterMetadata.put("chunk_count", chunks.size());
+        Map<Space, float[]> centroids = new LinkedHashMap<>();
+        embeddings.forEach((space, vectors) -> centroids.put(space, centroid(vectors)));
+        insert("book_chapter_vector_store", chapterTitle, chapterMetadata, centroids);
+    }
+
     public void add(List<Document> documents) {
-        String sql = "INSERT INTO book_content_vector_store (content, metadata, embedding) VALUES (:content, :metadata::json, :embedding::vector)";
-
-        for (Document doc : documents) {
-            float[] embedding = embeddingModel.embed(doc.getText());
-            try {
-                String metadataJson = objectMapper.writeValueAsString(doc.getMetadata());
-                jdbcClient.sql(sql)
-                        .param("content", doc.getText())
-                        .param("metadata", metadataJson)
-                        .param("embedding", java.util.Arrays.toString(embedding))
-                        .update();
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Failed to serialize metadata", e);
+        Map<Space, List<float[]>> embeddings = stageMetrics.time(StageMetrics.Stage.BATCH_EMBEDDING, FEATURE,
+                () -> EmbeddingGateway.bulk(() -> embeddingSpaces.embedForWrite(documents.stream()
+                        .map(Document::getText)
+                        .collect(Collectors.toList()))));
+        for (int i = 0; i < documents.size(); i++) {
+            Document doc = documents.get(i);
+            insert("book_content_vector_store", doc.getText(), doc.getMetadata(), EmbeddingSpaces.row(embeddings, i));
+        }
+    }
+
+    // One vector column per embedding space being written
+    private void insert(String table, String content, Map<String, Object> metadata,
+            Map<Space, float[]> embeddings) {
+        String sql = "INSERT INTO " + table + " (content, metadata, " + EmbeddingSpaceRepository.columns(embeddings)
+                + ") VALUES (:content, :metadata::json, " + EmbeddingSpaceRepository.values(embeddings) + ")";
+        try {
+            String metadataJson = objectMapper.writeValueAsString(metadata);
+            EmbeddingSpaceRepository.bind(jdbcClient.sql(sql)
+                    .param("content", content)
+                    .param("metadata", metadataJson), embeddings)
+                    .update();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize metadata", e);
+        }
+    }
+
+    // Mean of the chunk vectors, re-normalised so cosine distance stays meaningful
+    private float[] centroid(List<float[]> embeddings) {
+        float[] sum = new float[embeddings.get(0).length];
+        for (float[] embedding : embeddings) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += embedding[i];
             }
         }
+        double norm = 0.0;
+        for (float v : sum) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] = (float) (sum[i] / norm);
+            }
+        }
+        return sum;
+    }
+
+    // Distance and stored vector let the context builder rank and de-duplicate chunks
+    private Document mapScoredDocument(ResultSet rs) throws SQLException {
+        Map<String, Object> metadata = new HashMap<>(parseMetadata(rs.getString("metadata")));
+        metadata.put("distance", rs.getDouble("distance"));
+        metadata.put(VectorUtils.EMBEDDING_METADATA_KEY, VectorUtils.parseVector(rs.getString("embedding")));
+        return new Document(rs.getString("content"), metadata);
     }
 
-    private Map<String, Object> parseMetadata(String json) {
+    // Package-private for the JMH benchmarks
+    Map<String, Object> parseMetadata(String json) {
         try {
             return objectMapper.readValue(json, Map.class);
         } catch (Exception e) {
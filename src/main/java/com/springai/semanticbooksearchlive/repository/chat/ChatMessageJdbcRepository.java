@@ -0,0 +1,171 @@
+package com.springai.semanticbooksearchlive.repository.chat;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Durable tier of the chat memory, one row per message in {@code chat_memory}.
+ * <p>
+ * Each conversation has a version in {@code chat_conversation} that every
+ * write bumps, so readers can tell whether a copy they hold is still current
+ * and writers can replace a conversation only if nobody changed it since they
+ * read it.
+ * </p>
+ */
+@Repository
+public class ChatMessageJdbcRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public ChatMessageJdbcRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    /** A conversation's messages and the version they were read at. */
+    public record VersionedMessages(List<Message> messages, long version) {
+    }
+
+    public List<String> findConversationIds() {
+        return jdbcClient.sql("SELECT DISTINCT conversation_id FROM chat_memory")
+                .query((rs, rowNum) -> rs.getString("conversation_id"))
+                .list();
+    }
+
+    public List<Message> findByConversationId(String conversationId) {
+        return jdbcClient.sql("""
+                SELECT message_type, content
+                FROM chat_memory
+                WHERE conversation_id = :conversationId
+                ORDER BY seq
+                """)
+                .param("conversationId", conversationId)
+                .query((rs, rowNum) -> toMessage(rs.getString("message_type"), rs.getString("content")))
+                .list()
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /** Current version of a conversation; 0 if it was never written. */
+    public long findVersion(String conversationId) {
+        return jdbcClient.sql("SELECT version FROM chat_conversation WHERE conversation_id = :conversationId")
+                .param("conversationId", conversationId)
+                .query(Long.class)
+                .optional()
+                .orElse(0L);
+    }
+
+    /** Messages and version from one snapshot, so the version describes exactly these messages. */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public VersionedMessages findVersioned(String conversationId) {
+        long version = findVersion(conversationId);
+        return new VersionedMessages(findByConversationId(conversationId), version);
+    }
+
+    /**
+     * Replaces the stored window of a conversation in one transaction, so readers
+     * never see a half-written conversation, provided it is still at
+     * {@code expectedVersion}.
+     *
+     * @return false, changing nothing, if the conversation was written since
+     *         {@code expectedVersion} was read
+     */
+    @Transactional
+    public boolean replaceConversation(String conversationId, List<Message> messages, long expectedVersion) {
+        // The row lock taken here also serialises concurrent writers of the conversation
+        boolean current = jdbcClient.sql("""
+                INSERT INTO chat_conversation (conversation_id, version) VALUES (:conversationId, 1)
+                ON CONFLICT (conversation_id) DO UPDATE
+                SET version = chat_conversation.version + 1, updated_at = CURRENT_TIMESTAMP
+                WHERE chat_conversation.version = :expectedVersion
+                RETURNING version
+                """)
+                .param("conversationId", conversationId)
+                .param("expectedVersion", expectedVersion)
+                .query(Long.class)
+                .optional()
+                .filter(version -> version == expectedVersion + 1)
+                .isPresent();
+        if (current) {
+            writeMessages(conversationId, messages);
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the stored window of a conversation whatever its version.
+     *
+     * @return the new version
+     */
+    @Transactional
+    public long replaceConversation(String conversationId, List<Message> messages) {
+        long version = bumpVersion(conversationId);
+        writeMessages(conversationId, messages);
+        return version;
+    }
+
+    @Transactional
+    public void deleteByConversationId(String conversationId) {
+        // The version is bumped rather than deleted, so an old cached copy can never match again
+        bumpVersion(conversationId);
+        deleteMessages(conversationId);
+    }
+
+    private long bumpVersion(String conversationId) {
+        return jdbcClient.sql("""
+                INSERT INTO chat_conversation (conversation_id, version) VALUES (:conversationId, 1)
+                ON CONFLICT (conversation_id) DO UPDATE
+                SET version = chat_conversation.version + 1, updated_at = CURRENT_TIMESTAMP
+                RETURNING version
+                """)
+                .param("conversationId", conversationId)
+                .query(Long.class)
+                .single();
+    }
+
+    private void writeMessages(String conversationId, List<Message> messages) {
+        List<Message> storable = messages.stream()
+                .filter(m -> m.getMessageType() != MessageType.TOOL)
+                .toList();
+
+        deleteMessages(conversationId);
+        if (storable.isEmpty()) {
+            return;
+        }
+        jdbcClient.sql("""
+                INSERT INTO chat_memory (conversation_id, seq, message_type, content)
+                SELECT :conversationId, t.seq, t.message_type, t.content
+                FROM unnest(:types::text[], :contents::text[]) WITH ORDINALITY AS t(message_type, content, seq)
+                """)
+                .param("conversationId", conversationId)
+                .param("types", storable.stream().map(m -> m.getMessageType().name()).toArray(String[]::new))
+                .param("contents", storable.stream().map(Message::getText).toArray(String[]::new))
+                .update();
+    }
+
+    private void deleteMessages(String conversationId) {
+        jdbcClient.sql("DELETE FROM chat_memory WHERE conversation_id = :conversationId")
+                .param("conversationId", conversationId)
+                .update();
+    }
+
+    private Message toMessage(String type, String content) {
+        String text = content != null ? content : "";
+        return switch (MessageType.valueOf(type)) {
+            case USER -> new UserMessage(text);
+            case ASSISTANT -> new AssistantMessage(text);
+            case SYSTEM -> new SystemMessage(text);
+            default -> null;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.springai.semanticbooksearchlive.repository.search;
 
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
 import org.springframework.ai.document.Document;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
@@ -16,10 +17,13 @@ public class KeywordSearchRepository {
 
     private final JdbcClient jdbcClient;
     private final ObjectMapper objectMapper;
+    private final EmbeddingSpaces embeddingSpaces;
 
-    public KeywordSearchRepository(JdbcClient jdbcClient, ObjectMapper objectMapper) {
+    public KeywordSearchRepository(JdbcClient jdbcClient, ObjectMapper objectMapper,
+            EmbeddingSpaces embeddingSpaces) {
         this.jdbcClient = jdbcClient;
         this.objectMapper = objectMapper;
+        this.embeddingSpaces = embeddingSpaces;
     }
 
     public List<Document> search(String query) {
@@ -44,7 +48,8 @@ public class KeywordSearchRepository {
     }
 
     public List<Document> findAllWithEmbeddings() {
-        String sql = "SELECT id, content, metadata, embedding FROM vector_store";
+        String sql = embeddingSpaces.read()
+                .sql("SELECT id, content, metadata, {column} AS embedding FROM vector_store");
 
         return jdbcClient.sql(sql)
                 .query((rs, rowNum) -> {
@@ -65,7 +70,8 @@ public class KeywordSearchRepository {
                 .list();
     }
 
-    private Map<String, Object> parseMetadata(String json) {
+    // Package-private for the JMH benchmarks
+    Map<String, Object> parseMetadata(String json) {
         try {
             return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
             });
@@ -0,0 +1,82 @@
+package com.springai.semanticbooksearchlive.repository.search;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The catalog's nearest-neighbour query on {@code vector_store}, run with a
+ * precomputed query vector.
+ * <p>
+ * Catalog searches go through here rather than {@code PgVectorStore}, which
+ * embeds the query itself: with the vector in hand, embedding and HNSW scan
+ * are timed apart, the scan can be explained, and it can run with its own
+ * {@code hnsw.ef_search}. The SQL mirrors the store's (cosine distance,
+ * accept-all threshold, optional genre filter) on the column of the given
+ * embedding space, shortlisted on its prefix vectors where it has them.
+ * </p>
+ */
+@Repository
+public class VectorQueryRepository {
+
+    private final JdbcClient jdbcClient;
+    private final ObjectMapper objectMapper;
+
+    public VectorQueryRepository(JdbcClient jdbcClient, ObjectMapper objectMapper) {
+        this.jdbcClient = jdbcClient;
+        this.objectMapper = objectMapper;
+    }
+
+    public List<Document> search(Space space, float[] embedding, int topK, String genre) {
+        return statement(sql(space, genre), embedding, topK, genre)
+                .query((rs, rowNum) -> {
+                    Map<String, Object> metadata = new HashMap<>(parseMetadata(rs.getString("metadata")));
+                    metadata.put("distance", rs.getDouble("distance"));
+                    return new Document(rs.getString("id"), rs.getString("content"), metadata);
+                })
+                .list();
+    }
+
+    /**
+     * Runs {@code EXPLAIN (ANALYZE, BUFFERS)} for the same query. This executes
+     * the query a second time, so only call it when explicitly asked for.
+     */
+    public List<String> explain(Space space, float[] embedding, int topK, String genre) {
+        return statement("EXPLAIN (ANALYZE, BUFFERS) " + sql(space, genre), embedding, topK, genre)
+                .query((rs, rowNum) -> rs.getString(1))
+                .list();
+    }
+
+    private String sql(Space space, String genre) {
+        return space.nearest("""
+                SELECT id, content, metadata, {column} <=> :embedding::vector AS distance
+                FROM vector_store
+                WHERE {column} <=> :embedding::vector < 1
+                """
+                + (genre != null ? "AND (metadata->>'genre') = :genre\n" : ""), ":topK");
+    }
+
+    private JdbcClient.StatementSpec statement(String sql, float[] embedding, int topK, String genre) {
+        JdbcClient.StatementSpec statement = jdbcClient.sql(sql)
+                .param("embedding", Arrays.toString(embedding))
+                .param("topK", topK);
+        return genre != null ? statement.param("genre", genre) : statement;
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+}
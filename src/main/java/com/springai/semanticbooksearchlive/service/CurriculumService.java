@@ -1,16 +1,31 @@
 package com.springai.semanticbooksearchlive.service;
 
+import com.springai.semanticbooksearchlive.advisor.InsightAdvisor;
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
 import com.springai.semanticbooksearchlive.model.Book;
 import com.springai.semanticbooksearchlive.model.CompareSearchResponse;
 import com.springai.semanticbooksearchlive.model.Curriculum;
 import com.springai.semanticbooksearchlive.model.SearchResult;
 import com.springai.semanticbooksearchlive.service.book.BookService;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import jakarta.annotation.PreDestroy;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,15 +34,33 @@ public class CurriculumService {
     private final BookService bookService;
     private final TOCExtractorService tocExtractorService;
     private final ChatClient chatClient;
+    // Caps concurrent per-book enrichment (TOC fetch + book lookup) across all requests
+    private final Semaphore enrichmentPermits;
+    private final long enrichmentDeadlineMs;
+    // Lookups are not tied to the request that started them, so one that misses
+    // the deadline still completes and leaves its TOC in TOCExtractorService's cache
+    private final ExecutorService enrichmentExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Value("classpath:prompts/system-curriculum-designer.st")
     private Resource systemPrompt;
 
     public CurriculumService(BookService bookService, TOCExtractorService tocExtractorService,
-            ChatClient.Builder builder) {
+            ChatClient.Builder builder, LlmCallScheduler llmScheduler, StageMetrics stageMetrics,
+            @Value("${curriculum.enrichment.max-concurrency:5}") int enrichmentConcurrency,
+            @Value("${curriculum.enrichment.deadline-ms:3000}") long enrichmentDeadlineMs) {
         this.bookService = bookService;
         this.tocExtractorService = tocExtractorService;
-        this.chatClient = builder.build();
+        this.chatClient = builder
+                .defaultAdvisors(new InsightAdvisor(stageMetrics, StageMetrics.Feature.CURRICULUM),
+                        new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.CURRICULUM))
+                .build();
+        this.enrichmentPermits = new Semaphore(enrichmentConcurrency);
+        this.enrichmentDeadlineMs = enrichmentDeadlineMs;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        enrichmentExecutor.shutdownNow();
     }
 
     public Curriculum generateCurriculum(String topic, String level, String duration) {
@@ -38,19 +71,18 @@ public class CurriculumService {
                 .map(SearchResult::book)
                 .collect(Collectors.toList());
 
-        // 2. Prepare Context with TOCs
-        StringBuilder booksContext = new StringBuilder();
-        for (Book book : candidateBooks) {
-            List<String> toc = book.tableOfContents();
+        // 2. Fetch all TOCs concurrently under one overall deadline. Books that miss
+        // it are sent without a TOC; their fetch carries on and serves the next request.
+        List<CompletableFuture<List<String>>> tocs = candidateBooks.stream()
+                .map(book -> CompletableFuture.supplyAsync(() -> tableOfContents(book), enrichmentExecutor))
+                .collect(Collectors.toList());
+        awaitUntil(tocs, Instant.now().plusMillis(enrichmentDeadlineMs));
 
-            // Lazy Load TOC if missing and URL exists
-            if ((toc == null || toc.isEmpty()) && book.textUrl() != null && !book.textUrl().isBlank()) {
-                System.out.println("Extracting TOC for: " + book.title());
-                toc = tocExtractorService.extractChapters(book.textUrl());
-                // Note: We are strictly using this for the prompt context, not saving back to
-                // DB
-                // yet to avoid transaction complexity in this flow.
-            }
+        // 3. Prepare Context with TOCs
+        StringBuilder booksContext = new StringBuilder();
+        for (int i = 0; i < candidateBooks.size(); i++) {
+            Book book = candidateBooks.get(i);
+            List<String> toc = tocs.get(i).getNow(List.of());
 
             booksContext.append("Book Title: ").append(book.title())
                     .append(" (ID: ").append(book.id()).append(")\n");
@@ -64,7 +96,7 @@ public class CurriculumService {
             booksContext.append("\n---\n");
         }
 
-        // 3. Call AI
+        // 4. Call AI
         return chatClient.prompt()
                 .system(s -> s.text(systemPrompt)
                         .param("topic", topic)
@@ -75,4 +107,34 @@ public class CurriculumService {
                 .call()
                 .entity(Curriculum.class);
     }
+
+    // Waits without cancelling: a lookup still running at the deadline is only no longer waited for
+    private void awaitUntil(List<CompletableFuture<List<String>>> tocs, Instant deadline) {
+        try {
+            CompletableFuture.allOf(tocs.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, Duration.between(Instant.now(), deadline).toNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Unfinished lookups read as missing TOCs
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for tables of contents");
+        }
+    }
+
+    // A failed lookup only costs its own book's TOC, not the siblings'
+    private List<String> tableOfContents(Book book) {
+        try {
+            enrichmentPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+        try {
+            return tocExtractorService.getTableOfContents(book);
+        } catch (RuntimeException e) {
+            return List.of();
+        } finally {
+            enrichmentPermits.release();
+        }
+    }
 }
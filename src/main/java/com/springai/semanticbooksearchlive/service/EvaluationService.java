@@ -1,5 +1,10 @@
 package com.springai.semanticbooksearchlive.service;
 
+import com.springai.semanticbooksearchlive.advisor.InsightAdvisor;
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.llm.LlmCapacityExceededException;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
 
@@ -16,9 +21,12 @@ public class EvaluationService {
     @Value("classpath:/prompts/evaluation-judge.st")
     private Resource evaluationPromptResource;
 
-    public EvaluationService(ChatClient.Builder builder) {
+    public EvaluationService(ChatClient.Builder builder, LlmCallScheduler llmScheduler, StageMetrics stageMetrics) {
         // We act as an independent judge, so we don't need the other tools
-        this.chatClient = builder.build();
+        this.chatClient = builder
+                .defaultAdvisors(new InsightAdvisor(stageMetrics, StageMetrics.Feature.EVALUATION),
+                        new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.EVALUATION))
+                .build();
     }
 
     public EvaluationResult evaluateResponse(String userQuery, String aiResponse) {
@@ -31,6 +39,9 @@ public class EvaluationService {
                             .param("format", converter.getFormat()))
                     .call()
                     .entity(EvaluationResult.class);
+        } catch (LlmCapacityExceededException e) {
+            // Let the caller see 429 rather than a zero score
+            throw e;
         } catch (Exception e) {
             // Return a default error result
             return new EvaluationResult(0, 0, "Evaluation failed: " + e.getMessage());
@@ -1,66 +1,183 @@
 package com.springai.semanticbooksearchlive.service;
 
+import com.springai.semanticbooksearchlive.model.Book;
+import com.springai.semanticbooksearchlive.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class TOCExtractorService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TOCExtractorService.class);
+
+    // Only the start of a book is scanned; TOCs and first chapters live there
+    private static final int PREVIEW_CHARS = 20000;
+    // UTF-8 is at most 4 bytes per char, but Gutenberg texts are nearly all ASCII
+    private static final int PREVIEW_BYTES = PREVIEW_CHARS * 2;
+
     private final RestClient restClient;
+    private final BookRepository bookRepository;
+    // Book id -> TOC; the future makes concurrent callers share one download
+    private final Map<String, CompletableFuture<List<String>>> tocCache = new ConcurrentHashMap<>();
+
     // Regex looking for "Chapter 1", "Part I", "Book One", or all caps "CHAPTER 1"
     private final Pattern CHAPTER_PATTERN = Pattern.compile(
             "^(?i)(Chapter|Part|Book|Volume)\\s+([IVXLCDM\\d]+|[A-Z][a-z]+|One|Two|Three|Four|Five|Six|Seven|Eight|Nine|Ten).*$",
             Pattern.MULTILINE);
 
-    public TOCExtractorService(RestClient.Builder builder) {
+    public TOCExtractorService(RestClient.Builder builder, BookRepository bookRepository) {
         this.restClient = builder.build();
+        this.bookRepository = bookRepository;
     }
 
-    public List<String> extractChapters(String textUrl) {
-        if (textUrl == null || textUrl.isBlank()) {
+    /**
+     * Returns the book's table of contents, extracting it at most once.
+     * <p>
+     * Order of lookup: in-memory cache, {@code books.table_of_contents}, then the
+     * remote text. A freshly extracted TOC is written back to the books table.
+     * </p>
+     */
+    public List<String> getTableOfContents(Book book) {
+        if (book.id() == null || book.id().isBlank()) {
+            return extractChapters(book.textUrl());
+        }
+
+        CompletableFuture<List<String>> created = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = tocCache.putIfAbsent(book.id(), created);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            List<String> toc = loadOrExtract(book);
+            created.complete(toc);
+            return toc;
+        } catch (RuntimeException e) {
+            // Do not cache failures; the next caller retries
+            logger.warn("Failed to extract TOC for {}: {}", book.title(), e.getMessage());
+            tocCache.remove(book.id(), created);
+            created.complete(List.of());
             return List.of();
         }
+    }
 
+    // Interruptible, unlike join(), so a caller that is cancelled stops waiting on another's download
+    private static List<String> await(CompletableFuture<List<String>> toc) {
         try {
-            // Fetch first 15KB to catch most TOCs or initial chapters
-            // Note: Gutendex URLs might accept Range header, or we stream.
-            // For simplicity and speed in this demo, accessing the URL and limiting string
-            // size.
-            String content = restClient.get()
-                    .uri(textUrl)
-                    .retrieve()
-                    .body(String.class);
-
-            if (content == null)
-                return List.of();
-
-            // Truncate to first 20000 characters to save processing and ensure we get the
-            // TOC/start
-            String preview = content.length() > 20000 ? content.substring(0, 20000) : content;
-
-            List<String> chapters = new ArrayList<>();
-            Matcher matcher = CHAPTER_PATTERN.matcher(preview);
-
-            while (matcher.find()) {
-                String line = matcher.group(0).trim();
-                // Avoid tiny noise matches or massive lines
-                if (line.length() > 5 && line.length() < 100) {
-                    chapters.add(line);
-                }
-            }
+            return toc.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a table of contents");
+        } catch (ExecutionException e) {
+            // Not reached: failures complete the future with an empty TOC
+            return List.of();
+        }
+    }
 
-            // Fallback: If no chapters found, fallback to "Section 1..N" based on chunks?
-            // Or just return empty and let the LLM handle "Whole Book" logic.
-            return chapters;
+    private List<String> loadOrExtract(Book book) {
+        if (book.tableOfContents() != null && !book.tableOfContents().isEmpty()) {
+            return book.tableOfContents();
+        }
 
+        // Search results carry only vector metadata, so read the stored row
+        Optional<Book> stored = findBook(book.id());
+        if (stored.isPresent() && stored.get().tableOfContents() != null
+                && !stored.get().tableOfContents().isEmpty()) {
+            return stored.get().tableOfContents();
+        }
+
+        String textUrl = book.textUrl() != null ? book.textUrl() : stored.map(Book::textUrl).orElse(null);
+        List<String> toc = fetchChapters(textUrl);
+        if (!toc.isEmpty() && stored.isPresent()) {
+            bookRepository.updateTableOfContents(book.id(), toc);
+        }
+        return toc;
+    }
+
+    private Optional<Book> findBook(String id) {
+        try {
+            return bookRepository.findById(id);
+        } catch (IllegalArgumentException e) {
+            // Not a UUID (e.g. demo books), so it cannot be in the books table
+            return Optional.empty();
+        }
+    }
+
+    public List<String> extractChapters(String textUrl) {
+        try {
+            return fetchChapters(textUrl);
         } catch (Exception e) {
-            System.err.println("Failed to extract TOC from " + textUrl + ": " + e.getMessage());
+            logger.warn("Failed to extract TOC from {}: {}", textUrl, e.getMessage());
             return List.of();
         }
     }
+
+    private List<String> fetchChapters(String textUrl) {
+        if (textUrl == null || textUrl.isBlank()) {
+            return List.of();
+        }
+
+        // Ask for the first bytes only; servers that ignore Range still work
+        // because we stop reading once the preview window is full.
+        String preview = restClient.get()
+                .uri(textUrl)
+                .header(HttpHeaders.RANGE, "bytes=0-" + (PREVIEW_BYTES - 1))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().is5xxServerError()) {
+                        // Transient; thrown so the empty result is not cached
+                        throw new IllegalStateException("Server returned " + response.getStatusCode());
+                    }
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        return null;
+                    }
+                    try (Reader reader = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+                        return readUpTo(reader, PREVIEW_CHARS);
+                    }
+                });
+
+        if (preview == null)
+            return List.of();
+
+        List<String> chapters = new ArrayList<>();
+        Matcher matcher = CHAPTER_PATTERN.matcher(preview);
+
+        while (matcher.find()) {
+            String line = matcher.group(0).trim();
+            // Avoid tiny noise matches or massive lines
+            if (line.length() > 5 && line.length() < 100) {
+                chapters.add(line);
+            }
+        }
+
+        // Fallback: If no chapters found, fallback to "Section 1..N" based on chunks?
+        // Or just return empty and let the LLM handle "Whole Book" logic.
+        return chapters;
+    }
+
+    private String readUpTo(Reader reader, int maxChars) throws java.io.IOException {
+        char[] buffer = new char[maxChars];
+        int read = 0;
+        int n;
+        while (read < maxChars && (n = reader.read(buffer, read, maxChars - read)) != -1) {
+            read += n;
+        }
+        return new String(buffer, 0, read);
+    }
 }
@@ -1,7 +1,15 @@
 package com.springai.semanticbooksearchlive.service.book;
 
+import com.springai.semanticbooksearchlive.advisor.InsightAdvisor;
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
+import com.springai.semanticbooksearchlive.advisor.SemanticCacheAdvisor;
+import com.springai.semanticbooksearchlive.model.BookChapter;
+import com.springai.semanticbooksearchlive.model.PassageSearchResponse;
 import com.springai.semanticbooksearchlive.repository.BookRepository;
 import com.springai.semanticbooksearchlive.repository.book.BookContentRepository;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.service.rag.RagContextBuilder;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -11,51 +19,105 @@ import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class BookChatService {
 
+    // Chapter headings such as "CHAPTER IV.", "Chapter 12. Loomings" or "BOOK ONE": a line
+    // of their own between blank lines. A bare heading may carry its title on the next
+    // line; one with text after the number must stand alone, so a paragraph that merely
+    // starts with "Part two of..." doesn't match.
+    private static final Pattern CHAPTER_HEADING = Pattern.compile(
+            "(?:\\A|\\n[ \\t]*\\r?\\n)[ \\t]*((?i:chapter|part|book|volume)[ \\t]+"
+                    + "(?:[IVXLCDM]+|\\d+|(?i:One|Two|Three|Four|Five|Six|Seven|Eight|Nine|Ten))\\b"
+                    + "(?:[.:]?[ \\t]*$(?=\\r?\\n(?:.{1,80}\\r?\\n)?[ \\t]*(?:\\r?\\n|\\z))"
+                    + "|.{1,60}$(?=\\r?\\n[ \\t]*(?:\\r?\\n|\\z))))",
+            Pattern.MULTILINE);
+    // Headings closer together than this are TOC entries, not real chapters
+    private static final int MIN_CHAPTER_CHARS = 2000;
+    // Section size for texts without recognisable chapter headings, and the most
+    // a detected chapter may hold before it is cut into sections too
+    private static final int SECTION_CHARS = 40000;
+    private static final String NO_CONTENT_ANSWER = "I don't have enough information about this book to answer that. Please upload the book content first.";
+
     private final BookContentRepository repository;
     private final BookRepository bookRepository;
     private final ChatClient chatClient;
     private final RestClient restClient;
+    private final RagContextBuilder contextBuilder;
+    private final SemanticCacheAdvisor semanticCache;
+    private final StageMetrics stageMetrics;
 
     @org.springframework.beans.factory.annotation.Value("classpath:prompts/book-persona.st")
     private org.springframework.core.io.Resource systemPromptResource;
 
     public BookChatService(BookContentRepository repository, BookRepository bookRepository,
-            ChatClient.Builder builder) {
+            ChatClient.Builder builder, RagContextBuilder contextBuilder, SemanticCacheAdvisor semanticCache,
+            LlmCallScheduler llmScheduler, StageMetrics stageMetrics) {
         this.repository = repository;
         this.bookRepository = bookRepository;
-        this.chatClient = builder.build();
+        this.chatClient = builder
+                .defaultAdvisors(new InsightAdvisor(stageMetrics, StageMetrics.Feature.BOOK_CHAT), semanticCache,
+                        new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.CHAT))
+                .build();
         this.restClient = RestClient.create();
+        this.contextBuilder = contextBuilder;
+        this.semanticCache = semanticCache;
+        this.stageMetrics = stageMetrics;
     }
 
     public String chat(String bookId, String bookTitle, String message) {
-        // 1. Retrieve relevant chunks for this specific book
-        List<Document> similarDocs = repository.similaritySearch(bookId, message);
-        String context = similarDocs.stream()
-                .map(Document::getText)
-                .collect(Collectors.joining("\n\n"));
+        return chat(bookId, bookTitle, message, null);
+    }
+
+    public String chat(String bookId, String bookTitle, String message, String chapterId) {
+        Prompt prompt = buildPrompt(bookId, bookTitle, message, chapterId);
+        if (prompt == null) {
+            return NO_CONTENT_ANSWER;
+        }
+        return chatClient.prompt(prompt)
+                .advisors(a -> a.param(SemanticCacheAdvisor.SCOPE, SemanticCacheAdvisor.bookScope(bookId, chapterId)))
+                .call()
+                .content();
+    }
+
+    /** Streaming variant of {@link #chat(String, String, String, String)}. */
+    public Flux<String> chatStream(String bookId, String bookTitle, String message, String chapterId) {
+        Prompt prompt = buildPrompt(bookId, bookTitle, message, chapterId);
+        if (prompt == null) {
+            return Flux.just(NO_CONTENT_ANSWER);
+        }
+        return chatClient.prompt(prompt)
+                .advisors(a -> a.param(SemanticCacheAdvisor.SCOPE, SemanticCacheAdvisor.bookScope(bookId, chapterId)))
+                .stream()
+                .content();
+    }
+
+    private Prompt buildPrompt(String bookId, String bookTitle, String message, String chapterId) {
+        // 1. Retrieve relevant chunks (best chapters first, or the pinned chapter)
+        List<Document> similarDocs = repository.similaritySearch(bookId, message, chapterId);
+        String context = contextBuilder.build(similarDocs).text();
 
         if (context.isEmpty()) {
-            return "I don't have enough information about this book to answer that. Please upload the book content first.";
+            return null;
         }
 
         // 2. Construct System Prompt
         SystemPromptTemplate systemPrompt = new SystemPromptTemplate(systemPromptResource);
-        Prompt prompt = new Prompt(List.of(
+        return new Prompt(List.of(
                 systemPrompt.createMessage(Map.of("title", bookTitle, "context", context, "input", message)),
                 new UserMessage(message)));
-
-        // 3. Generate Response
-        return chatClient.prompt(prompt).call().content();
     }
 
     public void uploadBookContent(String bookId, Resource resource) {
@@ -90,19 +152,118 @@ public class BookChatService {
         }
     }
 
+    public PassageSearchResponse searchLibraryContent(String query, int bookLimit, int passagesPerBook,
+            Integer efSearch) {
+        List<Document> passages = repository.searchAcrossBooks(query,
+                Math.max(1, Math.min(bookLimit, 20)),
+                Math.max(1, Math.min(passagesPerBook, 10)),
+                efSearch);
+
+        // Rows arrive grouped by book (best book first), so insertion order is the ranking
+        Map<String, List<Document>> byBook = passages.stream()
+                .collect(Collectors.groupingBy(
+                        doc -> (String) doc.getMetadata().getOrDefault("book_id", ""),
+                        LinkedHashMap::new,
+                        Collectors.toList()));
+
+        List<PassageSearchResponse.BookPassages> books = byBook.entrySet().stream()
+                .map(entry -> {
+                    List<PassageSearchResponse.Passage> bookPassages = entry.getValue().stream()
+                            .map(doc -> new PassageSearchResponse.Passage(
+                                    doc.getText(),
+                                    (String) doc.getMetadata().getOrDefault("chapter_title", ""),
+                                    1.0 - ((Number) doc.getMetadata().get("distance")).doubleValue()))
+                            .collect(Collectors.toList());
+                    return new PassageSearchResponse.BookPassages(
+                            entry.getKey(),
+                            (String) entry.getValue().get(0).getMetadata().getOrDefault("title", ""),
+                            bookPassages.get(0).score(),
+                            bookPassages);
+                })
+                .collect(Collectors.toList());
+
+        return new PassageSearchResponse(query, books);
+    }
+
+    public List<BookChapter> getChapters(String bookId) {
+        return repository.findChapters(bookId);
+    }
+
     private void processAndStoreBookContent(String bookId, String title, String text) {
-        // 2. Split into chunks
+        // 2. Split into chapters, then each chapter into chunks
         TokenTextSplitter splitter = new TokenTextSplitter();
-        List<Document> documents = splitter.split(new Document(text));
+        List<Chapter> chapters = splitIntoChapters(text);
+
+        for (int i = 0; i < chapters.size(); i++) {
+            Chapter chapter = chapters.get(i);
+            List<Document> documents = stageMetrics.time(StageMetrics.Stage.CHUNKING, StageMetrics.Feature.BOOK_CHAT,
+                    () -> splitter.split(new Document(chapter.text())));
 
-        // 3. Add Metadata
-        documents.forEach(doc -> {
-            doc.getMetadata().putAll(Map.of(
-                    "book_id", bookId,
-                    "title", title));
-        });
+            // 3. Add Metadata
+            documents.forEach(doc -> {
+                doc.getMetadata().putAll(Map.of(
+                        "book_id", bookId,
+                        "title", title,
+                        "chapter_title", chapter.title()));
+            });
+
+            // 4. Store chunks and the chapter vector
+            repository.addChapter(bookId, bookId + "-ch-" + (i + 1), i + 1, chapter.title(), documents);
+        }
+        semanticCache.invalidate(SemanticCacheAdvisor.bookScope(bookId, null));
+    }
+
+    private List<Chapter> splitIntoChapters(String text) {
+        List<Chapter> chapters = new ArrayList<>();
+        Matcher matcher = CHAPTER_HEADING.matcher(text);
+
+        String currentTitle = "Front Matter";
+        int currentStart = 0;
+        while (matcher.find()) {
+            int headingStart = matcher.start(1);
+            // Skip headings that follow too closely (table of contents lines)
+            if (headingStart - currentStart < MIN_CHAPTER_CHARS && !chapters.isEmpty()) {
+                continue;
+            }
+            addChapter(chapters, currentTitle, text.substring(currentStart, headingStart));
+            currentTitle = matcher.group(1).trim();
+            currentStart = headingStart;
+        }
+        addChapter(chapters, currentTitle, text.substring(currentStart));
+
+        // No headings found: fixed-size sections so unstructured texts still get a
+        // first-level index
+        if (chapters.size() <= 1) {
+            List<Chapter> sections = new ArrayList<>();
+            addSections(sections, "Section", text);
+            return sections;
+        }
+
+        // A missed heading leaves one oversized chapter; cut it like an unstructured text
+        List<Chapter> bounded = new ArrayList<>();
+        for (Chapter chapter : chapters) {
+            if (chapter.text().length() > SECTION_CHARS) {
+                addSections(bounded, chapter.title() + ", part", chapter.text());
+            } else {
+                bounded.add(chapter);
+            }
+        }
+        return bounded;
+    }
+
+    private void addSections(List<Chapter> chapters, String titlePrefix, String text) {
+        for (int start = 0, n = 1; start < text.length(); start += SECTION_CHARS, n++) {
+            addChapter(chapters, titlePrefix + " " + n,
+                    text.substring(start, Math.min(text.length(), start + SECTION_CHARS)));
+        }
+    }
+
+    private void addChapter(List<Chapter> chapters, String title, String text) {
+        if (!text.isBlank()) {
+            chapters.add(new Chapter(title, text));
+        }
+    }
 
-        // 4. Store
-        repository.add(documents);
+    private record Chapter(String title, String text) {
     }
 }
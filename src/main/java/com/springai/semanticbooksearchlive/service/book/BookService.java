@@ -1,15 +1,25 @@
 package com.springai.semanticbooksearchlive.service.book;
 
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springai.semanticbooksearchlive.advisor.SemanticCacheAdvisor;
 import com.springai.semanticbooksearchlive.model.Book;
 import com.springai.semanticbooksearchlive.model.CompareSearchResponse;
+import com.springai.semanticbooksearchlive.model.ReindexSummary;
 import com.springai.semanticbooksearchlive.model.SearchResult;
 import com.springai.semanticbooksearchlive.repository.BookRepository;
+import com.springai.semanticbooksearchlive.repository.search.KeywordSearchRepository;
 import com.springai.semanticbooksearchlive.service.book.provider.BookProvider;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingUnavailableException;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.service.rag.RagContextBuilder;
+import com.springai.semanticbooksearchlive.service.search.CatalogVectorSearch;
+import com.springai.semanticbooksearchlive.service.search.SearchProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.content.Media;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.util.MimeTypeUtils;
@@ -17,54 +27,71 @@ import org.springframework.core.io.Resource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
-import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
+import reactor.core.publisher.Flux;
 
 @Service
 public class BookService {
 
-    private final VectorStore vectorStore;
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
+
+    private static final int INDEX_BATCH_SIZE = 100;
+    private static final String DEFAULT_CONVERSATION_ID = "default";
+    // Catalog entries are short, so a few more candidates still fit the budget
+    private static final int CHAT_CANDIDATES = 6;
+
     private final ChatClient chatClient;
     private final ChatMemory chatMemory;
     private final com.springai.semanticbooksearchlive.advisor.InsightAdvisor insightAdvisor;
     private final BookRepository bookRepository;
     private final List<BookProvider> bookProviders;
+    private final CatalogIndexService catalogIndexService;
+    private final CatalogSyncService catalogSyncService;
+    private final CoverImageService coverImageService;
+    private final RagContextBuilder contextBuilder;
+    private final CatalogVectorSearch catalogVectorSearch;
+    private final KeywordSearchRepository keywordRepository;
+    private final StageMetrics stageMetrics;
 
     @Value("classpath:prompts/library-assistant.st")
     private Resource systemPromptResource;
 
-    public BookService(VectorStore vectorStore, ChatClient.Builder builder, BookRepository bookRepository,
-            List<BookProvider> bookProviders) {
-        this.vectorStore = vectorStore;
+    public BookService(ChatClient.Builder builder, BookRepository bookRepository,
+            List<BookProvider> bookProviders, CatalogIndexService catalogIndexService,
+            CatalogSyncService catalogSyncService, CoverImageService coverImageService, ChatMemory chatMemory,
+            RagContextBuilder contextBuilder, SemanticCacheAdvisor semanticCache, LlmCallScheduler llmScheduler,
+            CatalogVectorSearch catalogVectorSearch, KeywordSearchRepository keywordRepository,
+            StageMetrics stageMetrics) {
         this.bookRepository = bookRepository;
         this.bookProviders = bookProviders;
-        this.insightAdvisor = new com.springai.semanticbooksearchlive.advisor.InsightAdvisor();
+        this.catalogIndexService = catalogIndexService;
+        this.catalogSyncService = catalogSyncService;
+        this.coverImageService = coverImageService;
+        this.contextBuilder = contextBuilder;
+        this.catalogVectorSearch = catalogVectorSearch;
+        this.keywordRepository = keywordRepository;
+        this.stageMetrics = stageMetrics;
+        this.insightAdvisor = new com.springai.semanticbooksearchlive.advisor.InsightAdvisor(stageMetrics,
+                StageMetrics.Feature.CATALOG);
         // Register 'this' bean as a tool provider
         this.chatClient = builder
                 .defaultTools(this)
-                .defaultAdvisors(this.insightAdvisor)
-                .build();
-        this.chatMemory = MessageWindowChatMemory.builder()
-                .chatMemoryRepository(new InMemoryChatMemoryRepository())
-                .maxMessages(100)
+                .defaultAdvisors(this.insightAdvisor, semanticCache,
+                        new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.CHAT))
                 .build();
+        this.chatMemory = chatMemory;
     }
 
     public List<Book> getAllBooks() {
@@ -72,36 +99,40 @@ public class BookService {
     }
 
     public String loadBooksToVectorStore() {
-        // Load initial books from DB
-        List<Book> books = bookRepository.findAll();
-        List<Document> documents = books.stream()
-                .map(this::mapBookToDocument)
-                .collect(Collectors.toList());
+        // Only new or changed books are embedded; removed books are dropped
+        ReindexSummary summary = reindexCatalog();
+        return "Re-indexed catalog: " + summary.added() + " added, " + summary.updated() + " updated, "
+                + summary.unchanged() + " unchanged, " + summary.removed() + " removed in "
+                + summary.durationMs() + "ms";
+    }
 
-        vectorStore.add(documents);
-        return "Successfully loaded " + books.size() + " books into vector store (DB Constraint Idempotency)";
+    public ReindexSummary reindexCatalog() {
+        return catalogIndexService.reindex();
     }
 
     public String refreshBookCatalog() {
+        // Each provider page is stored as soon as it arrives
         int count = 0;
         for (BookProvider provider : bookProviders) {
-            List<Book> newBooks = provider.fetchBooks();
-            for (Book book : newBooks) {
-                bookRepository.save(book);
-
-                // Also add to vector store if needed for search immediately
-                // However, logic says 'loadBooksToVectorStore' handles that.
-                // Let's add them incrementally here too for better UX.
-                Document doc = mapBookToDocument(book);
-                vectorStore.add(List.of(doc));
-
-                ensureCoverImageExists(book.imageUrl(), book.title());
-                count++;
-            }
+            CatalogSyncService.SyncResult result = catalogSyncService.sync(provider, this::storeNewBooks);
+            logger.info("Synced {}", result);
+            count += result.newBooks();
         }
         return "Refreshed catalog with " + count + " new books from providers.";
     }
 
+    private void storeNewBooks(List<Book> books) {
+        // 1. One bulk insert; only books that were actually new come back
+        List<Book> newBooks = bookRepository.saveAll(books.stream().map(this::withGeneratedCover).toList());
+
+        // 2. Index the new books in batches
+        for (int i = 0; i < newBooks.size(); i += INDEX_BATCH_SIZE) {
+            catalogIndexService.index(newBooks.subList(i, Math.min(newBooks.size(), i + INDEX_BATCH_SIZE)));
+        }
+
+        newBooks.forEach(this::requestCover);
+    }
+
     public Set<String> getGenres() {
         return bookRepository.findAll().stream()
                 .map(Book::genre)
@@ -121,22 +152,21 @@ public class BookService {
             // But since save is idempotent-ish in our logic:
 
             // Fix: Ensure Book has an ID if missing
-            Book bookToAdd = book;
+            Book bookToAdd = withGeneratedCover(book);
             if (book.id() == null || book.id().trim().isEmpty()) {
                 String newId = UUID.randomUUID().toString();
                 bookToAdd = new Book(newId, book.title(), book.author(), book.summary(), book.genre(),
-                        book.publicationYear(), book.imageUrl(), false, java.util.Collections.emptyList(), null);
+                        book.publicationYear(), bookToAdd.imageUrl(), false, java.util.Collections.emptyList(), null);
             }
 
             // 1. Save to DB
             bookRepository.save(bookToAdd);
 
             // 2. Add to Vector Store
-            Document document = mapBookToDocument(bookToAdd);
-            vectorStore.add(List.of(document));
+            catalogIndexService.index(List.of(bookToAdd));
 
-            // 3. Ensure local cover image exists
-            ensureCoverImageExists(bookToAdd.imageUrl(), bookToAdd.title());
+            // 3. Cover image is rendered in the background, never on this path
+            requestCover(bookToAdd);
 
             return "Book '" + bookToAdd.title() + "' added to library successfully.";
         } catch (Exception e) {
@@ -144,38 +174,47 @@ public class BookService {
         }
     }
 
-    private void ensureCoverImageExists(String imageUrl, String title) {
-        if (imageUrl == null || !imageUrl.startsWith("/images/books/")) {
-            return;
+    // Points books without a usable image at a locally generated cover; the
+    // URL is known up front, the image itself is rendered in the background
+    private Book withGeneratedCover(Book book) {
+        if (!coverImageService.needsGeneratedCover(book.imageUrl())) {
+            return book;
         }
+        return new Book(book.id(), book.title(), book.author(), book.summary(), book.genre(),
+                book.publicationYear(), coverImageService.coverUrl(book.title(), book.author()),
+                book.hasContent(), book.tableOfContents(), book.textUrl());
+    }
 
-        try {
-            File imageFile = new File("frontend/public" + imageUrl);
-
-            if (!imageFile.exists()) {
-                if (imageFile.getParentFile() != null) {
-                    imageFile.getParentFile().mkdirs();
-                }
+    private void requestCover(Book book) {
+        if (book.imageUrl() != null && book.imageUrl().startsWith(CoverImageService.COVER_URL_PREFIX)) {
+            coverImageService.generateAsync(book.title(), book.author());
+        }
+    }
 
-                String placeholderUrl = "https://placehold.co/400x600?text="
-                        + URLEncoder.encode(title, StandardCharsets.UTF_8);
+    public String chat(String query, Resource imageResource) {
+        return chat(DEFAULT_CONVERSATION_ID, query, imageResource);
+    }
 
-                java.net.URLConnection connection = new URI(placeholderUrl).toURL().openConnection();
-                connection.setRequestProperty("User-Agent", "Mozilla/5.0");
+    public String chat(String conversationId, String query, Resource imageResource) {
+        return prompt(conversationId, query, imageResource).call().content();
+    }
 
-                try (java.io.InputStream in = connection.getInputStream()) {
-                    Files.copy(in, imageFile.toPath());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println(
-                    "Warning: Failed to generate local cover image for: " + title + ". Error: " + e.getMessage());
-        }
+    /** Streaming variant of {@link #chat(String, String, Resource)}; emits tokens as they arrive. */
+    public Flux<String> chatStream(String conversationId, String query, Resource imageResource) {
+        return prompt(conversationId, query, imageResource).stream().content();
     }
 
-    public String chat(String query, Resource imageResource) {
-        List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder().query(query).topK(3).build());
-        String context = documents.stream().map(Document::getText).collect(Collectors.joining("\n"));
+    private ChatClient.ChatClientRequestSpec prompt(String conversationId, String query, Resource imageResource) {
+        List<Document> documents;
+        try {
+            documents = catalogVectorSearch.search(query, CHAT_CANDIDATES,
+                    new SearchProfiler(stageMetrics, StageMetrics.Feature.CATALOG, false, false));
+        } catch (EmbeddingUnavailableException e) {
+            // Provider is down: ground the answer in full-text matches rather than fail the chat
+            documents = stageMetrics.time(StageMetrics.Stage.KEYWORD_SEARCH, StageMetrics.Feature.CATALOG,
+                    () -> keywordRepository.search(query));
+        }
+        String context = contextBuilder.build(documents).text();
 
         UserMessage message = new UserMessage(query);
         if (imageResource != null) {
@@ -186,15 +225,14 @@ public class BookService {
                 .system(s -> s.text(systemPromptResource).param("context", context))
                 .messages(message)
                 .advisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
-                .advisors(a -> a.param("chat_memory_conversation_id", "default"))
-                .call()
-                .content();
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId)
+                        .param(SemanticCacheAdvisor.SCOPE, SemanticCacheAdvisor.catalogScope()));
     }
 
     @Tool(description = "Searches the library for books matching the query. Returns a list of matching book titles and authors.")
     public String searchLibrary(@ToolParam(description = "The title, author, or topic to search for") String query) {
         CompareSearchResponse response = search(query, "All", 5);
-        List<SearchResult> results = response.semantic();
+        List<SearchResult> results = response.degraded() ? response.keyword() : response.semantic();
 
         if (results.isEmpty()) {
             return "No matching books found in the library.";
@@ -206,56 +244,50 @@ public class BookService {
     }
 
     public CompareSearchResponse search(String query, String genre, int limit) {
-        // 1. Semantic Search (Vector) with optional Filter
-        SearchRequest.Builder requestBuilder = SearchRequest.builder()
-                .query(query)
-                .topK(limit);
+        return search(query, genre, limit, false, false, null);
+    }
 
-        if (genre != null && !genre.isEmpty() && !genre.equals("All")) {
-            requestBuilder.filterExpression("genre == '" + genre + "'");
-        }
+    /**
+     * @param profile  include per-stage timings and candidate counts in the response
+     * @param explain  with {@code profile}, also include the vector query plan
+     * @param efSearch HNSW {@code ef_search} for the vector leg; null for the
+     *                 configured default
+     */
+    public CompareSearchResponse search(String query, String genre, int limit, boolean profile, boolean explain,
+            Integer efSearch) {
+        SearchProfiler profiler = new SearchProfiler(stageMetrics, StageMetrics.Feature.CATALOG, profile, explain);
+        String genreFilter = genre != null && !genre.isEmpty() && !genre.equals("All") ? genre : null;
 
-        List<Document> documents = vectorStore.similaritySearch(requestBuilder.build());
-        List<SearchResult> semanticResults = constructSearchResult(documents);
+        // 1. Semantic Search (Vector) with optional Filter
+        // Skipped (degraded) when the embedding provider is down or over its latency budget
+        Optional<List<Document>> documents = catalogVectorSearch.search(query, limit, genreFilter, efSearch,
+                profiler);
+        List<SearchResult> semanticResults = constructSearchResult(documents.orElse(List.of()));
 
         // 2. Keyword Search
         // Note: For now, fetching all books from DB for simple keyword search might be
         // okay for small scale,
         // but for larger DB, we should use SQL LIKE query in Repository.
         // For strict compatibility with previous logic & small dataset, we fetch all.
-        List<Book> allBooks = bookRepository.findAll();
-        List<SearchResult> keywordResults = allBooks.stream()
-                .filter(book -> {
-                    boolean matchesQuery = book.title().toLowerCase().contains(query.toLowerCase()) ||
-                            book.author().toLowerCase().contains(query.toLowerCase()) ||
-                            book.summary().toLowerCase().contains(query.toLowerCase());
-                    boolean matchesGenre = (genre == null || genre.isEmpty() || genre.equals("All")
-                            || book.genre().equalsIgnoreCase(genre));
-                    return matchesQuery && matchesGenre;
-                })
-                .limit(limit)
-                .map(book -> new SearchResult(book, 1.0))
-                .collect(Collectors.toList());
-
-        return new CompareSearchResponse(semanticResults, keywordResults);
-    }
-
-    private Document mapBookToDocument(Book book) {
-        String content = "Title: " + book.title() + ", Author: " + book.author()
-                + ", Description: " + book.summary();
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("id", book.id());
-        metadata.put("title", book.title() != null ? book.title() : "");
-        metadata.put("author", book.author() != null ? book.author() : "");
-        metadata.put("genre", book.genre() != null ? book.genre() : "");
-        metadata.put("publicationYear", book.publicationYear());
-        metadata.put("imageUrl", book.imageUrl() != null ? book.imageUrl() : "");
-
-        String deterministicId = java.util.UUID.nameUUIDFromBytes(book.id().getBytes()).toString();
-        return new Document(deterministicId, content, metadata);
+        List<SearchResult> keywordResults = profiler.time(StageMetrics.Stage.KEYWORD_SEARCH,
+                () -> bookRepository.findAll().stream()
+                        .filter(book -> {
+                            boolean matchesQuery = book.title().toLowerCase().contains(query.toLowerCase()) ||
+                                    book.author().toLowerCase().contains(query.toLowerCase()) ||
+                                    book.summary().toLowerCase().contains(query.toLowerCase());
+                            boolean matchesGenre = genreFilter == null || book.genre().equalsIgnoreCase(genreFilter);
+                            return matchesQuery && matchesGenre;
+                        })
+                        .limit(limit)
+                        .map(book -> new SearchResult(book, 1.0))
+                        .collect(Collectors.toList()));
+        profiler.candidates("keyword", keywordResults.size());
+
+        return new CompareSearchResponse(semanticResults, keywordResults, documents.isEmpty(), profiler.build());
     }
 
-    private List<SearchResult> constructSearchResult(List<Document> documents) {
+    // Package-private for the JMH benchmarks
+    static List<SearchResult> constructSearchResult(List<Document> documents) {
         return documents.stream()
                 .map(doc -> {
                     Map<String, Object> metadata = doc.getMetadata();
@@ -279,7 +311,7 @@ public class BookService {
                 .collect(Collectors.toList());
     }
 
-    private double getScore(Map<String, Object> metadata) {
+    private static double getScore(Map<String, Object> metadata) {
         double score = 0.0;
         if (metadata.containsKey("distance")) {
             score = 1 - ((Number) metadata.get("distance")).doubleValue();
@@ -0,0 +1,164 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import com.springai.semanticbooksearchlive.advisor.SemanticCacheAdvisor;
+import com.springai.semanticbooksearchlive.model.Book;
+import com.springai.semanticbooksearchlive.model.ReindexSummary;
+import com.springai.semanticbooksearchlive.repository.BookIndexStateRepository;
+import com.springai.semanticbooksearchlive.repository.BookIndexStateRepository.IndexState;
+import com.springai.semanticbooksearchlive.repository.BookRepository;
+import com.springai.semanticbooksearchlive.repository.CatalogVectorRepository;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingGateway;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps the catalog vectors ({@code vector_store}) in sync with the {@code books} table.
+ * <p>
+ * A SHA-256 fingerprint of each book's document text and metadata is stored in
+ * {@code book_index_state}. Re-indexing embeds only books whose fingerprint is
+ * new or different and deletes vectors of books that no longer exist.
+ * </p>
+ */
+@Service
+public class CatalogIndexService {
+
+    private final CatalogVectorRepository vectorRepository;
+    private final BookRepository bookRepository;
+    private final BookIndexStateRepository indexStateRepository;
+    private final SemanticCacheAdvisor semanticCache;
+    private final StageMetrics stageMetrics;
+
+    public CatalogIndexService(CatalogVectorRepository vectorRepository, BookRepository bookRepository,
+            BookIndexStateRepository indexStateRepository, SemanticCacheAdvisor semanticCache,
+            StageMetrics stageMetrics) {
+        this.vectorRepository = vectorRepository;
+        this.bookRepository = bookRepository;
+        this.indexStateRepository = indexStateRepository;
+        this.semanticCache = semanticCache;
+        this.stageMetrics = stageMetrics;
+    }
+
+    public ReindexSummary reindex() {
+        long start = System.currentTimeMillis();
+
+        List<Book> books = bookRepository.findAll();
+        Map<String, IndexState> existing = indexStateRepository.findAll();
+
+        // 1. Diff current books against stored fingerprints
+        List<Document> changedDocs = new ArrayList<>();
+        List<IndexState> changedStates = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int added = 0;
+        int updated = 0;
+        int unchanged = 0;
+
+        for (Book book : books) {
+            seen.add(book.id());
+            Document doc = toDocument(book);
+            String fingerprint = fingerprint(doc);
+            IndexState state = existing.get(book.id());
+
+            if (state != null && state.fingerprint().equals(fingerprint)) {
+                unchanged++;
+                continue;
+            }
+            if (state == null) {
+                added++;
+            } else {
+                updated++;
+            }
+            changedDocs.add(doc);
+            changedStates.add(new IndexState(book.id(), doc.getId(), fingerprint));
+        }
+
+        // 2. Embed and upsert only what changed
+        if (!changedDocs.isEmpty()) {
+            stageMetrics.time(StageMetrics.Stage.BATCH_EMBEDDING, StageMetrics.Feature.CATALOG,
+                    () -> EmbeddingGateway.bulk(() -> vectorRepository.upsert(changedDocs)));
+            indexStateRepository.upsertAll(changedStates);
+        }
+
+        // 3. Drop vectors of books that were removed from the catalog
+        List<String> removedBookIds = new ArrayList<>();
+        List<String> removedVectorIds = new ArrayList<>();
+        existing.values().stream()
+                .filter(state -> !seen.contains(state.bookId()))
+                .forEach(state -> {
+                    removedBookIds.add(state.bookId());
+                    removedVectorIds.add(state.vectorId());
+                });
+        if (!removedVectorIds.isEmpty()) {
+            vectorRepository.delete(removedVectorIds);
+            indexStateRepository.deleteAll(removedBookIds);
+        }
+
+        // Cached library answers were grounded in the previous catalog
+        if (!changedDocs.isEmpty() || !removedVectorIds.isEmpty()) {
+            semanticCache.invalidate(SemanticCacheAdvisor.catalogScope());
+        }
+
+        return new ReindexSummary(added, updated, unchanged, removedBookIds.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexes the given books right away (used when books are added one by one)
+     * and records their fingerprints so the next {@link #reindex()} skips them.
+     */
+    public void index(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        List<Document> documents = new ArrayList<>();
+        List<IndexState> states = new ArrayList<>();
+        for (Book book : books) {
+            Document doc = toDocument(book);
+            documents.add(doc);
+            states.add(new IndexState(book.id(), doc.getId(), fingerprint(doc)));
+        }
+        stageMetrics.time(StageMetrics.Stage.BATCH_EMBEDDING, StageMetrics.Feature.CATALOG,
+                () -> EmbeddingGateway.bulk(() -> vectorRepository.upsert(documents)));
+        indexStateRepository.upsertAll(states);
+        semanticCache.invalidate(SemanticCacheAdvisor.catalogScope());
+    }
+
+    public Document toDocument(Book book) {
+        String content = "Title: " + book.title() + ", Author: " + book.author()
+                + ", Description: " + book.summary();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("id", book.id());
+        metadata.put("title", book.title() != null ? book.title() : "");
+        metadata.put("author", book.author() != null ? book.author() : "");
+        metadata.put("genre", book.genre() != null ? book.genre() : "");
+        metadata.put("publicationYear", book.publicationYear());
+        metadata.put("imageUrl", book.imageUrl() != null ? book.imageUrl() : "");
+
+        String deterministicId = java.util.UUID.nameUUIDFromBytes(book.id().getBytes()).toString();
+        return new Document(deterministicId, content, metadata);
+    }
+
+    private String fingerprint(Document doc) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(doc.getText().getBytes(StandardCharsets.UTF_8));
+            // TreeMap gives a stable key order regardless of the map implementation
+            digest.update(new TreeMap<>(doc.getMetadata()).toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
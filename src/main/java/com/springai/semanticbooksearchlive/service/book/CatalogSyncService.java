@@ -0,0 +1,175 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import com.springai.semanticbooksearchlive.model.Book;
+import com.springai.semanticbooksearchlive.repository.ProviderSyncStateRepository;
+import com.springai.semanticbooksearchlive.service.book.provider.BookProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Syncs paged {@link BookProvider}s into the catalog.
+ * <p>
+ * Pages are fetched concurrently (bounded by {@code books.sync.max-concurrency})
+ * and request starts are spaced by {@code books.sync.min-request-interval-ms}.
+ * Each page is retried with exponential backoff on its own, so one failing page
+ * does not stop the sync. Pages fetched within {@code books.sync.page-ttl-hours}
+ * are skipped, and books synced before are filtered out, so only the delta is
+ * handed to the sink, one page at a time as pages arrive.
+ * </p>
+ */
+@Service
+public class CatalogSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSyncService.class);
+
+    private final ProviderSyncStateRepository syncStateRepository;
+    private final int maxConcurrency;
+    private final long minRequestIntervalNanos;
+    private final int maxRetries;
+    private final long initialBackoffMs;
+    private final Duration pageTtl;
+
+    private final Object rateLock = new Object();
+    private long nextRequestSlot = Long.MIN_VALUE;
+
+    public CatalogSyncService(ProviderSyncStateRepository syncStateRepository,
+            @Value("${books.sync.max-concurrency:3}") int maxConcurrency,
+            @Value("${books.sync.min-request-interval-ms:250}") long minRequestIntervalMs,
+            @Value("${books.sync.max-retries:3}") int maxRetries,
+            @Value("${books.sync.initial-backoff-ms:500}") long initialBackoffMs,
+            @Value("${books.sync.page-ttl-hours:24}") long pageTtlHours) {
+        this.syncStateRepository = syncStateRepository;
+        this.maxConcurrency = maxConcurrency;
+        this.minRequestIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minRequestIntervalMs);
+        this.maxRetries = maxRetries;
+        this.initialBackoffMs = initialBackoffMs;
+        this.pageTtl = Duration.ofHours(pageTtlHours);
+    }
+
+    public record SyncResult(String provider, int pagesFetched, int pagesSkipped, int pagesFailed, int newBooks) {
+    }
+
+    /**
+     * @param sink receives each page's new books as soon as the page arrives;
+     *             may be called from several threads at once
+     */
+    public SyncResult sync(BookProvider provider, Consumer<List<Book>> sink) {
+        String name = provider.getName();
+        Set<String> known = ConcurrentHashMap.newKeySet();
+        known.addAll(syncStateRepository.findSyncedBookIds(name));
+        Set<Integer> freshPages = syncStateRepository.findPagesSyncedWithin(name, pageTtl);
+
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger newBooks = new AtomicInteger();
+        AtomicInteger lastPage = new AtomicInteger(Integer.MAX_VALUE);
+        int skipped = 0;
+
+        // Fair, so pages still start roughly in order and the end-of-catalog
+        // short-circuit below keeps working
+        Semaphore permits = new Semaphore(maxConcurrency, true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int page = 1; page <= provider.getMaxPages(); page++) {
+                if (freshPages.contains(page)) {
+                    skipped++;
+                    continue;
+                }
+                int pageNumber = page;
+                executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        // Another page already reported the end of the catalog
+                        if (pageNumber > lastPage.get()) {
+                            return;
+                        }
+                        BookProvider.Page result = fetchWithRetry(provider, pageNumber);
+                        if (result == null) {
+                            failed.incrementAndGet();
+                            return;
+                        }
+                        fetched.incrementAndGet();
+                        if (result.last()) {
+                            lastPage.accumulateAndGet(pageNumber, Math::min);
+                        }
+
+                        // Set.add is atomic, so concurrent pages never emit the same book twice
+                        List<Book> delta = result.books().stream()
+                                .filter(book -> known.add(book.id()))
+                                .toList();
+                        if (!delta.isEmpty()) {
+                            try {
+                                sink.accept(delta);
+                            } catch (Exception e) {
+                                // Not marked as synced, so the page is picked up again next time
+                                logger.warn("Failed to store {} page {}", name, pageNumber, e);
+                                failed.incrementAndGet();
+                                return;
+                            }
+                            newBooks.addAndGet(delta.size());
+                        }
+                        syncStateRepository.markPageSynced(name, pageNumber,
+                                delta.stream().map(Book::id).toList());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } // close() waits for all submitted pages
+
+        return new SyncResult(name, fetched.get(), skipped, failed.get(), newBooks.get());
+    }
+
+    private BookProvider.Page fetchWithRetry(BookProvider provider, int page) {
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            try {
+                acquireRequestSlot();
+                return provider.fetchPage(page);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                logger.warn("Error fetching {} page {} (attempt {}): {}", provider.getName(), page, attempt + 1,
+                        e.getMessage());
+                if (attempt == maxRetries) {
+                    break;
+                }
+                try {
+                    long backoff = initialBackoffMs << attempt;
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Spaces request starts at least minRequestInterval apart across all workers
+    private void acquireRequestSlot() throws InterruptedException {
+        long waitNanos;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestSlot);
+            nextRequestSlot = slot + minRequestIntervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
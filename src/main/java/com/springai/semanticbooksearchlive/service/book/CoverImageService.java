@@ -0,0 +1,199 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders placeholder book covers locally with Java2D.
+ * <p>
+ * Covers are content-addressed: the key is a hash of everything that goes into
+ * the rendering (renderer version, title, author), so the final URL is known
+ * before anything is drawn and a book can be saved right away. Rendering runs
+ * on the async executor and writes one PNG per thumbnail width under
+ * {@code books.covers.dir}.
+ * </p>
+ */
+@Service
+public class CoverImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverImageService.class);
+
+    public static final String COVER_URL_PREFIX = "/api/covers/";
+    public static final List<Integer> WIDTHS = List.of(400, 200, 100);
+
+    // Bump when the rendering changes so old cached covers are not reused
+    private static final String RENDERER_VERSION = "v1";
+    private static final int FULL_WIDTH = 400;
+    private static final int FULL_HEIGHT = 600;
+
+    private final Path coverDir;
+
+    public CoverImageService(@Value("${books.covers.dir:data/covers}") String coverDir) {
+        this.coverDir = Path.of(coverDir);
+    }
+
+    public String coverKey(String title, String author) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String input = RENDERER_VERSION + "|" + nullToEmpty(title) + "|" + nullToEmpty(author);
+            return HexFormat.of().formatHex(digest.digest(input.getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public String coverUrl(String title, String author) {
+        return COVER_URL_PREFIX + coverKey(title, author);
+    }
+
+    /**
+     * True when the book has no usable image and should get a generated cover:
+     * no URL, a remote placeholder service URL, or a bundled image that is
+     * missing from the frontend.
+     */
+    public boolean needsGeneratedCover(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank() || imageUrl.contains("placehold.co")) {
+            return true;
+        }
+        return imageUrl.startsWith("/images/books/") && !Files.exists(Path.of("frontend/public" + imageUrl));
+    }
+
+    @Async
+    public void generateAsync(String title, String author) {
+        try {
+            generate(title, author);
+        } catch (Exception e) {
+            logger.warn("Failed to generate cover image for: {}", title, e);
+        }
+    }
+
+    public Optional<Path> findCover(String key, int width) {
+        Path file = coverFile(key, width);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /** Renders (if not present yet) and returns the cover at the given width. */
+    public Path generate(String title, String author, int width) throws IOException {
+        generate(title, author);
+        return coverFile(coverKey(title, author), width);
+    }
+
+    private void generate(String title, String author) throws IOException {
+        String key = coverKey(title, author);
+        if (WIDTHS.stream().allMatch(width -> Files.exists(coverFile(key, width)))) {
+            return;
+        }
+
+        Files.createDirectories(coverDir);
+        BufferedImage full = render(nullToEmpty(title), nullToEmpty(author), key);
+        for (int width : WIDTHS) {
+            BufferedImage image = width == FULL_WIDTH ? full : scale(full, width);
+            // Write to a temp file and move, so readers never see a half-written PNG
+            Path tmp = Files.createTempFile(coverDir, key, ".tmp");
+            ImageIO.write(image, "png", tmp.toFile());
+            Files.move(tmp, coverFile(key, width), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private Path coverFile(String key, int width) {
+        return coverDir.resolve(key + "-" + width + ".png");
+    }
+
+    private BufferedImage render(String title, String author, String key) {
+        BufferedImage image = new BufferedImage(FULL_WIDTH, FULL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+            // Background colour derived from the key so each book gets a stable hue
+            float hue = Integer.parseInt(key.substring(0, 4), 16) / 65535f;
+            g.setPaint(new GradientPaint(0, 0, Color.getHSBColor(hue, 0.55f, 0.55f),
+                    0, FULL_HEIGHT, Color.getHSBColor(hue, 0.65f, 0.2f)));
+            g.fillRect(0, 0, FULL_WIDTH, FULL_HEIGHT);
+
+            g.setColor(new Color(255, 255, 255, 70));
+            g.drawRect(20, 20, FULL_WIDTH - 41, FULL_HEIGHT - 41);
+
+            g.setColor(Color.WHITE);
+            g.setFont(new Font(Font.SERIF, Font.BOLD, 38));
+            int y = FULL_HEIGHT / 3;
+            for (String line : wrap(title, g.getFontMetrics(), FULL_WIDTH - 80)) {
+                drawCentered(g, line, y);
+                y += g.getFontMetrics().getHeight();
+            }
+
+            g.setColor(new Color(255, 255, 255, 200));
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 22));
+            drawCentered(g, author, FULL_HEIGHT - 70);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private BufferedImage scale(BufferedImage source, int width) {
+        int height = source.getHeight() * width / source.getWidth();
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private void drawCentered(Graphics2D g, String text, int y) {
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (FULL_WIDTH - metrics.stringWidth(text)) / 2, y);
+    }
+
+    private List<String> wrap(String text, FontMetrics metrics, int maxWidth) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        for (String word : text.split("\\s+")) {
+            String candidate = line.isEmpty() ? word : line + " " + word;
+            if (metrics.stringWidth(candidate) > maxWidth && !line.isEmpty()) {
+                lines.add(line.toString());
+                line = new StringBuilder(word);
+            } else {
+                line = new StringBuilder(candidate);
+            }
+        }
+        if (!line.isEmpty()) {
+            lines.add(line.toString());
+        }
+        // Very long titles are cut rather than running off the cover
+        return lines.size() > 6 ? lines.subList(0, 6) : lines;
+    }
+
+    private String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -3,6 +3,30 @@ package com.springai.semanticbooksearchlive.service.book.provider;
 import com.springai.semanticbooksearchlive.model.Book;
 import java.util.List;
 
+/**
+ * A paged source of catalog books.
+ * <p>
+ * Providers only fetch single pages; concurrency, rate limiting, retries and
+ * delta tracking are handled by
+ * {@link com.springai.semanticbooksearchlive.service.book.CatalogSyncService}
+ * so every provider gets them for free.
+ * </p>
+ */
 public interface BookProvider {
-    List<Book> fetchBooks();
+
+    /** Stable name used to key the provider's sync state. */
+    String getName();
+
+    /** Upper bound on the number of pages a sync will request. */
+    int getMaxPages();
+
+    /**
+     * Fetches one page (1-based). Implementations should return an empty page
+     * marked as last when the page is past the end of the catalog and throw on
+     * transient failures so the page can be retried.
+     */
+    Page fetchPage(int page);
+
+    record Page(List<Book> books, boolean last) {
+    }
 }
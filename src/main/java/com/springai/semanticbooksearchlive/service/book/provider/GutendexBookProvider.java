@@ -3,7 +3,9 @@ package com.springai.semanticbooksearchlive.service.book.provider;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.springai.semanticbooksearchlive.model.Book;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
 import java.util.Collections;
@@ -15,48 +17,47 @@ import java.util.stream.Collectors;
 public class GutendexBookProvider implements BookProvider {
 
     private final RestClient restClient;
+    private final int maxPages;
 
-    public GutendexBookProvider(RestClient.Builder builder) {
-        this.restClient = builder.baseUrl("https://gutendex.com").build();
+    public GutendexBookProvider(RestClient.Builder builder,
+            @Value("${books.gutendex.base-url:https://gutendex.com}") String baseUrl,
+            @Value("${books.gutendex.max-pages:5}") int maxPages) {
+        this.restClient = builder.baseUrl(baseUrl).build();
+        this.maxPages = maxPages;
     }
 
     @Override
-    public List<Book> fetchBooks() {
-        List<Book> allBooks = new java.util.ArrayList<>();
-        String nextUrl = "/books";
-
-        // Fetch up to 5 pages to get a decent catalog size (~160 books)
-        for (int i = 0; i < 5; i++) {
-            if (nextUrl == null)
-                break;
-
-            try {
-                // Handle absolute or relative URLs from the API
-                String uriToCall = nextUrl;
-                if (nextUrl.startsWith("https://gutendex.com")) {
-                    uriToCall = nextUrl.replace("https://gutendex.com", "");
-                }
-
-                GutendexResponse response = restClient.get()
-                        .uri(uriToCall)
-                        .retrieve()
-                        .body(GutendexResponse.class);
-
-                if (response == null || response.results == null) {
-                    break;
-                }
-
-                allBooks.addAll(response.results.stream()
-                        .map(this::mapToBook)
-                        .collect(Collectors.toList()));
-
-                nextUrl = response.next;
-            } catch (Exception e) {
-                System.err.println("Error fetching Gutendex page: " + e.getMessage());
-                break;
-            }
+    public String getName() {
+        return "gutendex";
+    }
+
+    @Override
+    public int getMaxPages() {
+        // 5 pages of 32 gives a decent catalog size (~160 books)
+        return maxPages;
+    }
+
+    @Override
+    public Page fetchPage(int page) {
+        GutendexResponse response;
+        try {
+            response = restClient.get()
+                    .uri("/books?page={page}", page)
+                    .retrieve()
+                    .body(GutendexResponse.class);
+        } catch (HttpClientErrorException.NotFound e) {
+            // Gutendex answers 404 for pages past the end
+            return new Page(List.of(), true);
+        }
+
+        if (response == null || response.results == null) {
+            return new Page(List.of(), true);
         }
-        return allBooks;
+
+        return new Page(response.results.stream()
+                .map(this::mapToBook)
+                .collect(Collectors.toList()),
+                response.next == null);
     }
 
     private Book mapToBook(GutendexBook gBook) {
@@ -0,0 +1,140 @@
+package com.springai.semanticbooksearchlive.service.chat;
+
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Folds older conversation turns into a short running summary.
+ * <p>
+ * Summaries are produced on virtual threads so they never run on the request
+ * path; {@code chat.memory.summary.threads} caps how many call the model at
+ * once. At most one summarisation per key is in flight at a time.
+ * </p>
+ */
+@Service
+public class ConversationSummarizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummarizer.class);
+
+    private final ChatClient chatClient;
+    private final ExecutorService summaryExecutor;
+    private final Semaphore summaryPermits;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // key -> summary of the first 'covered' turns, LRU-bounded
+    private final Map<String, RollingSummary> rollingSummaries;
+
+    @Value("classpath:prompts/conversation-summarizer.st")
+    private Resource summarizerPromptResource;
+
+    public record RollingSummary(String text, int covered) {
+    }
+
+    public ConversationSummarizer(ChatClient.Builder builder, LlmCallScheduler llmScheduler,
+            @Value("${chat.memory.summary.threads:2}") int threads,
+            @Value("${chat.memory.summary.max-cached:1000}") int maxCached) {
+        this.chatClient = builder
+                .defaultAdvisors(new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.SUMMARY))
+                .build();
+        this.summaryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.summaryPermits = new Semaphore(threads);
+        this.rollingSummaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RollingSummary> eldest) {
+                return size() > maxCached;
+            }
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        summaryExecutor.shutdownNow();
+    }
+
+    /** Synchronous summarisation; callers are expected to be off the request path. */
+    public String summarize(String previousSummary, String transcript) {
+        return chatClient.prompt()
+                .user(u -> u.text(summarizerPromptResource)
+                        .param("summary", previousSummary != null ? previousSummary : "")
+                        .param("transcript", transcript))
+                .call()
+                .content();
+    }
+
+    /**
+     * Runs {@code task} in the background unless a task for the same key is
+     * already running. Returns false when the task was skipped.
+     */
+    public boolean submit(String key, Runnable task) {
+        if (!inFlight.add(key)) {
+            return false;
+        }
+        CompletableFuture.runAsync(() -> withPermit(task), summaryExecutor)
+                .whenComplete((ignored, e) -> {
+                    inFlight.remove(key);
+                    if (e != null) {
+                        logger.warn("Conversation summary failed for {}", key, e);
+                    }
+                });
+        return true;
+    }
+
+    private void withPermit(Runnable task) {
+        summaryPermits.acquireUninterruptibly();
+        try {
+            task.run();
+        } finally {
+            summaryPermits.release();
+        }
+    }
+
+    /**
+     * Summary for callers that resend the full history every request (e.g. the
+     * debate arena). Returns whatever summary is cached now and, if it covers
+     * fewer than {@code olderTurns} lines, refreshes it in the background.
+     * A cached summary covering more lines than were sent belongs to another
+     * conversation under the same key (a restarted debate, edited history);
+     * it is dropped and the history summarised from the start.
+     */
+    public RollingSummary rollingSummary(String key, List<String> olderTurns) {
+        RollingSummary empty = new RollingSummary("", 0);
+        RollingSummary current;
+        synchronized (rollingSummaries) {
+            current = rollingSummaries.getOrDefault(key, empty);
+            if (current.covered() > olderTurns.size()) {
+                rollingSummaries.remove(key);
+                current = empty;
+            }
+        }
+        if (current.covered() < olderTurns.size()) {
+            RollingSummary base = current;
+            submit(key, () -> {
+                String transcript = String.join("\n", olderTurns.subList(base.covered(), olderTurns.size()));
+                String updated = summarize(base.text(), transcript);
+                synchronized (rollingSummaries) {
+                    // Only extend the summary this one was built on, never one reset meanwhile
+                    if (rollingSummaries.getOrDefault(key, empty).equals(base)) {
+                        rollingSummaries.put(key, new RollingSummary(updated, olderTurns.size()));
+                    }
+                }
+            });
+        }
+        return current;
+    }
+}
@@ -0,0 +1,213 @@
+package com.springai.semanticbooksearchlive.service.chat;
+
+import com.springai.semanticbooksearchlive.repository.chat.ChatMessageJdbcRepository.VersionedMessages;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ChatMemory} that keeps the most recent turns verbatim and folds older
+ * turns into a running summary.
+ * <p>
+ * The stored conversation is {@code [summary?, recent messages...]}, where the
+ * summary is a system message with {@link #SUMMARY_PREFIX}. Once more than
+ * {@code chat.memory.summary.trigger-messages} verbatim messages pile up, the
+ * oldest ones are compacted in the background by {@link ConversationSummarizer}.
+ * {@link #get(String)} always returns the summary plus as many recent messages
+ * as fit in {@code chat.memory.prompt-token-budget}.
+ * </p>
+ * <p>
+ * Every write is a read-modify-write of the whole conversation, checked
+ * against the version it read (see {@link TieredChatMemoryRepository}), so
+ * instances behind a non-sticky load balancer never overwrite each other's
+ * turns: a conflicting write reloads and retries. The lock stripes below only
+ * save those retries between threads of the same instance. A compaction whose
+ * folded turns are no longer at the start of the conversation (another
+ * instance compacted first) is dropped.
+ * </p>
+ */
+@Service
+public class SummarizingChatMemory implements ChatMemory {
+
+    static final String SUMMARY_PREFIX = "SUMMARY OF EARLIER CONVERSATION:\n";
+    // Conflicting writes from other instances before giving up
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final TieredChatMemoryRepository repository;
+    private final ConversationSummarizer summarizer;
+    private final TokenCountEstimator tokenEstimator = new JTokkitTokenCountEstimator();
+    private final int keepLastMessages;
+    private final int triggerMessages;
+    private final int maxMessages;
+    private final int promptTokenBudget;
+    // Striped per-conversation locks so threads of this instance don't race each
+    // other into version conflicts, without keeping one lock object per conversation.
+    // ReentrantLock rather than synchronized: the lock is held across JDBC calls,
+    // and a monitor would pin the carrier thread of a virtual thread meanwhile.
+    private final ReentrantLock[] lockStripes = new ReentrantLock[64];
+
+    public SummarizingChatMemory(TieredChatMemoryRepository repository, ConversationSummarizer summarizer,
+            @Value("${chat.memory.summary.keep-last-messages:12}") int keepLastMessages,
+            @Value("${chat.memory.summary.trigger-messages:24}") int triggerMessages,
+            @Value("${chat.memory.max-messages:100}") int maxMessages,
+            @Value("${chat.memory.prompt-token-budget:3000}") int promptTokenBudget) {
+        this.repository = repository;
+        this.summarizer = summarizer;
+        this.keepLastMessages = keepLastMessages;
+        this.triggerMessages = triggerMessages;
+        this.maxMessages = maxMessages;
+        this.promptTokenBudget = promptTokenBudget;
+        for (int i = 0; i < lockStripes.length; i++) {
+            lockStripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        int verbatim;
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                VersionedMessages current = repository.load(conversationId);
+                List<Message> stored = new ArrayList<>(current.messages());
+                stored.addAll(messages);
+
+                // Hard cap in case compaction falls behind; the oldest turns go first
+                int offset = isSummary(stored) ? 1 : 0;
+                while (stored.size() - offset > maxMessages) {
+                    stored.remove(offset);
+                }
+                if (repository.replace(conversationId, stored, current.version())) {
+                    verbatim = stored.size() - offset;
+                    break;
+                }
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    throw new IllegalStateException("Conversation " + conversationId
+                            + " kept changing concurrently; messages not stored");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (verbatim > triggerMessages) {
+            summarizer.submit("chat:" + conversationId, () -> compact(conversationId));
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        List<Message> stored = repository.findByConversationId(conversationId);
+        if (stored.isEmpty()) {
+            return stored;
+        }
+
+        List<Message> result = new ArrayList<>();
+        int budget = promptTokenBudget;
+        int start = 0;
+        if (isSummary(stored)) {
+            result.add(stored.get(0));
+            budget -= tokens(stored.get(0));
+            start = 1;
+        }
+
+        // Walk back from the newest message until the budget is spent
+        List<Message> recent = new ArrayList<>();
+        for (int i = stored.size() - 1; i >= start; i--) {
+            int cost = tokens(stored.get(i));
+            if (cost > budget && !recent.isEmpty()) {
+                break;
+            }
+            recent.add(0, stored.get(i));
+            budget -= cost;
+        }
+        result.addAll(recent);
+        return result;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        repository.deleteByConversationId(conversationId);
+    }
+
+    private void compact(String conversationId) {
+        // 1. Snapshot what to fold in (outside the lock; the LLM call is slow)
+        List<Message> snapshot = repository.findByConversationId(conversationId);
+        int offset = isSummary(snapshot) ? 1 : 0;
+        int toFold = snapshot.size() - offset - keepLastMessages;
+        if (toFold <= 0) {
+            return;
+        }
+        String previousSummary = offset == 1 ? snapshot.get(0).getText().substring(SUMMARY_PREFIX.length()) : "";
+        List<Message> folded = snapshot.subList(offset, offset + toFold);
+        String transcript = folded.stream()
+                .map(m -> m.getMessageType().name() + ": " + m.getText())
+                .collect(Collectors.joining("\n"));
+
+        String summary = summarizer.summarize(previousSummary, transcript);
+
+        // 2. Swap the folded prefix for the new summary, keeping anything added since
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+                VersionedMessages current = repository.load(conversationId);
+                List<Message> messages = current.messages();
+                int currentOffset = isSummary(messages) ? 1 : 0;
+                int fromIndex = currentOffset + toFold;
+                // Only valid while the folded turns still open the conversation
+                if (fromIndex > messages.size() || !sameMessages(messages.subList(currentOffset, fromIndex), folded)) {
+                    return;
+                }
+                List<Message> compacted = new ArrayList<>();
+                compacted.add(new SystemMessage(SUMMARY_PREFIX + summary));
+                compacted.addAll(messages.subList(fromIndex, messages.size()));
+                if (repository.replace(conversationId, compacted, current.version())) {
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean sameMessages(List<Message> a, List<Message> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).getMessageType() != b.get(i).getMessageType()
+                    || !Objects.equals(a.get(i).getText(), b.get(i).getText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSummary(List<Message> messages) {
+        return !messages.isEmpty()
+                && messages.get(0).getMessageType() == MessageType.SYSTEM
+                && messages.get(0).getText() != null
+                && messages.get(0).getText().startsWith(SUMMARY_PREFIX);
+    }
+
+    private int tokens(Message message) {
+        return message.getText() != null ? tokenEstimator.estimate(message.getText()) : 0;
+    }
+
+    private ReentrantLock lockFor(String conversationId) {
+        return lockStripes[Math.floorMod(conversationId.hashCode(), lockStripes.length)];
+    }
+}
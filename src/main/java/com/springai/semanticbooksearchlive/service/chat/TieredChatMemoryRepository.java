@@ -0,0 +1,187 @@
+package com.springai.semanticbooksearchlive.service.chat;
+
+import com.springai.semanticbooksearchlive.repository.chat.ChatMessageJdbcRepository;
+import com.springai.semanticbooksearchlive.repository.chat.ChatMessageJdbcRepository.VersionedMessages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ChatMemoryRepository} with a bounded in-memory hot tier in front of
+ * the JDBC store.
+ * <p>
+ * Writes go through to {@code chat_memory}, so memory survives restarts and is
+ * shared between instances. Every write bumps the conversation's version, and
+ * a hot entry is only served while its version is still the stored one (a
+ * primary-key lookup instead of reloading the messages), so an instance never
+ * answers from history another instance has changed since. Writers that read
+ * before they write use {@link #load(String)} and
+ * {@link #replace(String, List, long)}, which refuses to overwrite a
+ * conversation written in between. The hot tier holds at most
+ * {@code chat.memory.hot.max-conversations} conversations in LRU order and
+ * drops entries idle for longer than {@code chat.memory.hot.idle-ttl-minutes};
+ * evicted conversations are simply reloaded from the database on next use.
+ * </p>
+ */
+@Service
+public class TieredChatMemoryRepository implements ChatMemoryRepository {
+
+    private final ChatMessageJdbcRepository store;
+    private final int maxConversations;
+    private final long idleTtlNanos;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, HotEntry> hot = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private record HotEntry(List<Message> messages, long version, long chars, long lastAccess) {
+    }
+
+    public TieredChatMemoryRepository(ChatMessageJdbcRepository store, MeterRegistry meterRegistry,
+            @Value("${chat.memory.hot.max-conversations:1000}") int maxConversations,
+            @Value("${chat.memory.hot.idle-ttl-minutes:30}") long idleTtlMinutes) {
+        this.store = store;
+        this.maxConversations = maxConversations;
+        this.idleTtlNanos = Duration.ofMinutes(idleTtlMinutes).toNanos();
+
+        this.hits = meterRegistry.counter("chat.memory.hot.hits");
+        this.misses = meterRegistry.counter("chat.memory.hot.misses");
+        this.evictions = meterRegistry.counter("chat.memory.hot.evictions");
+        Gauge.builder("chat.memory.hot.conversations", this, r -> r.hotSize())
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.hot.messages", this, r -> r.hotMessages())
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.hot.bytes", this, r -> r.hotChars() * 2)
+                .description("Approximate heap held by cached message text")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return store.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        return new ArrayList<>(load(conversationId).messages());
+    }
+
+    /** The current messages of a conversation and their version, for {@link #replace}. */
+    public VersionedMessages load(String conversationId) {
+        long version = store.findVersion(conversationId);
+        synchronized (hot) {
+            HotEntry entry = hot.get(conversationId);
+            if (entry != null && entry.version() == version && !isExpired(entry, System.nanoTime())) {
+                hits.increment();
+                hot.put(conversationId, new HotEntry(entry.messages(), version, entry.chars(), System.nanoTime()));
+                return new VersionedMessages(entry.messages(), version);
+            }
+        }
+
+        misses.increment();
+        VersionedMessages loaded = store.findVersioned(conversationId);
+        cache(conversationId, loaded.messages(), loaded.version());
+        return loaded;
+    }
+
+    /**
+     * Replaces the conversation if it is still at {@code expectedVersion}.
+     *
+     * @return false, changing nothing, if it was written since; reload and retry
+     */
+    public boolean replace(String conversationId, List<Message> messages, long expectedVersion) {
+        if (!store.replaceConversation(conversationId, messages, expectedVersion)) {
+            synchronized (hot) {
+                hot.remove(conversationId);
+            }
+            return false;
+        }
+        cache(conversationId, messages, expectedVersion + 1);
+        return true;
+    }
+
+    /** Unconditional replace; prefer {@link #replace} after a {@link #load}. */
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        long version = store.replaceConversation(conversationId, messages);
+        cache(conversationId, messages, version);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        store.deleteByConversationId(conversationId);
+        synchronized (hot) {
+            hot.remove(conversationId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.memory.hot.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        synchronized (hot) {
+            Iterator<HotEntry> it = hot.values().iterator();
+            while (it.hasNext()) {
+                if (isExpired(it.next(), now)) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private void cache(String conversationId, List<Message> messages, long version) {
+        long chars = messages.stream().mapToLong(m -> m.getText() != null ? m.getText().length() : 0).sum();
+        synchronized (hot) {
+            // A concurrent load or write may already have cached a newer version
+            HotEntry existing = hot.get(conversationId);
+            if (existing != null && existing.version() > version) {
+                return;
+            }
+            hot.put(conversationId, new HotEntry(List.copyOf(messages), version, chars, System.nanoTime()));
+            Iterator<Map.Entry<String, HotEntry>> it = hot.entrySet().iterator();
+            while (hot.size() > maxConversations && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isExpired(HotEntry entry, long now) {
+        return now - entry.lastAccess() > idleTtlNanos;
+    }
+
+    private int hotSize() {
+        synchronized (hot) {
+            return hot.size();
+        }
+    }
+
+    private long hotMessages() {
+        synchronized (hot) {
+            return hot.values().stream().mapToLong(e -> e.messages().size()).sum();
+        }
+    }
+
+    private long hotChars() {
+        synchronized (hot) {
+            return hot.values().stream().mapToLong(HotEntry::chars).sum();
+        }
+    }
+}
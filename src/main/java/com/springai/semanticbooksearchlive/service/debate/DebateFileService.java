@@ -1,6 +1,7 @@
 package com.springai.semanticbooksearchlive.service.debate;
 
 import com.springai.semanticbooksearchlive.repository.DebateContentRepository;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
 import org.apache.tika.Tika;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
@@ -18,9 +19,11 @@ public class DebateFileService {
     private final DebateContentRepository repository;
     private final Tika tika;
     private final TokenTextSplitter tokenTextSplitter;
+    private final StageMetrics stageMetrics;
 
-    public DebateFileService(DebateContentRepository repository) {
+    public DebateFileService(DebateContentRepository repository, StageMetrics stageMetrics) {
         this.repository = repository;
+        this.stageMetrics = stageMetrics;
         this.tika = new Tika();
         // Chunk size optimized for debate context
         this.tokenTextSplitter = new TokenTextSplitter();
@@ -29,9 +32,14 @@ public class DebateFileService {
     public String uploadFile(MultipartFile file, String sessionId, String label) throws IOException {
         // 1. Parse Text
         String content;
+        long parseStart = System.nanoTime();
         try (InputStream stream = file.getInputStream()) {
             content = tika.parseToString(stream);
+            stageMetrics.record(StageMetrics.Stage.DOCUMENT_PARSE, StageMetrics.Feature.DEBATE,
+                    System.nanoTime() - parseStart, true);
         } catch (Exception e) { // Catch TikaException
+            stageMetrics.record(StageMetrics.Stage.DOCUMENT_PARSE, StageMetrics.Feature.DEBATE,
+                    System.nanoTime() - parseStart, false);
             throw new RuntimeException("Failed to parse file", e);
         }
 
@@ -42,7 +50,8 @@ public class DebateFileService {
         System.out.println("Extracted " + content.length() + " chars from " + file.getOriginalFilename());
 
         // 2. Split into segments
-        List<Document> documents = tokenTextSplitter.split(new Document(content));
+        List<Document> documents = stageMetrics.time(StageMetrics.Stage.CHUNKING, StageMetrics.Feature.DEBATE,
+                () -> tokenTextSplitter.split(new Document(content)));
 
         // 3. Enrich with Debate Metadata
         documents.forEach(doc -> {
@@ -1,15 +1,22 @@
 package com.springai.semanticbooksearchlive.service.debate;
 
+import com.springai.semanticbooksearchlive.advisor.InsightAdvisor;
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
 import com.springai.semanticbooksearchlive.model.debate.DebateMessage;
 import com.springai.semanticbooksearchlive.model.debate.DebateRequest;
 import com.springai.semanticbooksearchlive.model.debate.DebateResponse;
 import com.springai.semanticbooksearchlive.repository.DebateContentRepository;
+import com.springai.semanticbooksearchlive.service.chat.ConversationSummarizer;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.service.rag.RagContextBuilder;
+import com.springai.semanticbooksearchlive.util.TaskScope;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.document.Document;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,18 +30,62 @@ import java.util.Map;
 @Service
 public class DebateOrchestratorService {
 
+    private static final int RECENT_MESSAGES = 6;
+
+    public record StreamingTurn(String speaker, Flux<String> content) {
+    }
+
+    private record Turn(String speaker, Prompt prompt) {
+    }
+
     private final DebateContentRepository repository;
     private final ChatClient chatClient;
+    private final ConversationSummarizer summarizer;
+    private final RagContextBuilder contextBuilder;
 
     @Value("classpath:prompts/debate-system.st")
     private Resource debateSystemPromptResource;
 
-    public DebateOrchestratorService(DebateContentRepository repository, ChatClient.Builder builder) {
+    public DebateOrchestratorService(DebateContentRepository repository, ChatClient.Builder builder,
+            ConversationSummarizer summarizer, RagContextBuilder contextBuilder, LlmCallScheduler llmScheduler,
+            StageMetrics stageMetrics) {
         this.repository = repository;
-        this.chatClient = builder.build();
+        this.chatClient = builder
+                .defaultAdvisors(new InsightAdvisor(stageMetrics, StageMetrics.Feature.DEBATE),
+                        new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.DEBATE))
+                .build();
+        this.summarizer = summarizer;
+        this.contextBuilder = contextBuilder;
     }
 
     public DebateResponse processTurn(DebateRequest request) {
+        Turn turn = prepareTurn(request);
+
+        // 6. Call LLM
+        String responseContent = chatClient.prompt(turn.prompt()).call().content();
+
+        // 7. Update History (Frontend handles state, but we return the logically next
+        // state)
+        // Ideally we just return the new message, and frontend appends it.
+        // But the Record expects 'updatedHistory'.
+        // For simplicity, we won't modify the input list, just return the response
+        // details.
+
+        return new DebateResponse(turn.speaker(), responseContent, request.history());
+        // Note: Actual appending happens in frontend or we can append here if we want
+        // backend to be authoritative.
+    }
+
+    /**
+     * Streaming variant of {@link #processTurn(DebateRequest)}. The speaker is
+     * known before the model is called, so it is returned up front.
+     */
+    public StreamingTurn streamTurn(DebateRequest request) {
+        Turn turn = prepareTurn(request);
+        return new StreamingTurn(turn.speaker(), chatClient.prompt(turn.prompt()).stream().content());
+    }
+
+    private Turn prepareTurn(DebateRequest request) {
         // 1. Determine Speaker (A starts, then alternates)
         String currentSpeaker = determineNextSpeaker(request.history());
 
@@ -45,13 +96,21 @@ public class DebateOrchestratorService {
             lastArgument = lastMsg.content();
         }
 
-        // 3. Retrieve Context (RAG)
-        // We search for the *current topic* or the *last argument* in the current
-        // speaker's file
+        // 3. Retrieve Context (RAG) in the background while 5. the history window is
+        // assembled here: retrieval waits on the embedding provider and the database,
+        // the history is built in memory (its summary is refreshed in the background)
         String query = request.topic() + " " + lastArgument;
-        List<Document> docs = repository.similaritySearch(request.sessionId(), currentSpeaker, query);
-
-        String context = docs.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+        String context;
+        String conversationText;
+        try (TaskScope scope = new TaskScope()) {
+            // We search for the *current topic* or the *last argument* in the current
+            // speaker's file
+            TaskScope.Subtask<String> retrieval = scope.fork(() -> contextBuilder
+                    .build(repository.similaritySearch(request.sessionId(), currentSpeaker, query)).text());
+            conversationText = conversationText(request);
+            scope.join().throwIfFailed();
+            context = retrieval.get();
+        }
         if (context.isEmpty()) {
             context = "No specific text found in the document for this point. Use general knowledge about the document's theme.";
         }
@@ -63,35 +122,38 @@ public class DebateOrchestratorService {
                 "topic", request.topic(),
                 "context", context));
 
-        // 5. Context Window Management (Sliding Window)
-        // We only append the last 6 messages to the prompt to avoid token overflow
-        List<DebateMessage> recentHistory = getRecentHistory(request.history(), 6);
-        StringBuilder conversationText = new StringBuilder();
-        for (DebateMessage msg : recentHistory) {
-            conversationText.append(msg.sender()).append(": ").append(msg.content()).append("\n");
-        }
-
         UserMessage userMessage = new UserMessage(
                 "OPPONENT ARGUMENT:\n" + lastArgument + "\n\n(Respond as " + currentSpeaker + ")");
 
         Prompt prompt = new Prompt(List.of(
                 systemMessage,
-                new SystemMessage("CURRENT CONVERSATION CONTEXT:\n" + conversationText.toString()),
+                new SystemMessage("CURRENT CONVERSATION CONTEXT:\n" + conversationText),
                 userMessage));
 
-        // 6. Call LLM
-        String responseContent = chatClient.prompt(prompt).call().content();
+        return new Turn(currentSpeaker, prompt);
+    }
 
-        // 7. Update History (Frontend handles state, but we return the logically next
-        // state)
-        // Ideally we just return the new message, and frontend appends it.
-        // But the Record expects 'updatedHistory'.
-        // For simplicity, we won't modify the input list, just return the response
-        // details.
+    private String conversationText(DebateRequest request) {
+        // 5. Context Window Management (Sliding Window + Rolling Summary)
+        // The last 6 messages go in verbatim; older ones are represented by a running
+        // summary that is refreshed in the background, never on this request.
+        List<DebateMessage> history = request.history() != null ? request.history() : List.of();
+        List<DebateMessage> recentHistory = getRecentHistory(history, RECENT_MESSAGES);
+        List<String> olderTurns = history.subList(0, history.size() - recentHistory.size()).stream()
+                .map(msg -> msg.sender() + ": " + msg.content())
+                .collect(Collectors.toList());
 
-        return new DebateResponse(currentSpeaker, responseContent, request.history());
-        // Note: Actual appending happens in frontend or we can append here if we want
-        // backend to be authoritative.
+        StringBuilder conversationText = new StringBuilder();
+        if (!olderTurns.isEmpty() && request.sessionId() != null) {
+            String summary = summarizer.rollingSummary("debate:" + request.sessionId(), olderTurns).text();
+            if (!summary.isBlank()) {
+                conversationText.append("Summary of earlier rounds: ").append(summary).append("\n\n");
+            }
+        }
+        for (DebateMessage msg : recentHistory) {
+            conversationText.append(msg.sender()).append(": ").append(msg.content()).append("\n");
+        }
+        return conversationText.toString();
     }
 
     private String determineNextSpeaker(List<DebateMessage> history) {
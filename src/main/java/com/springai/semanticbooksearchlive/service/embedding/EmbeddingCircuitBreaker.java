@@ -0,0 +1,193 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for query-time embeddings, plus the latency budget search
+ * uses around its vector leg.
+ * <p>
+ * {@link EmbeddingGateway} reports the outcome of every query embedding. Calls
+ * slower than {@code embedding.breaker.slow-call-ms} count as failures. When
+ * at least {@code minimum-calls} of the last {@code window-size} calls are
+ * recorded and the failure ratio reaches {@code failure-rate-threshold}, the
+ * breaker opens: query embeddings fail immediately for {@code open-duration-ms},
+ * then a single probe is let through (half-open) to decide whether to close.
+ * </p>
+ * <p>
+ * Search calls {@link #withinBudget(Supplier)} for the vector leg, which gives
+ * up after {@code search.vector.budget-ms} so callers can answer from the
+ * keyword legs instead of waiting for the provider's HTTP timeout.
+ * </p>
+ */
+@Component
+public class EmbeddingCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final long vectorBudgetMs;
+    private final ExecutorService vectorExecutor;
+
+    // Ring buffer of recent outcomes, true = failure
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public EmbeddingCircuitBreaker(MeterRegistry meterRegistry,
+            @Value("${embedding.breaker.window-size:20}") int windowSize,
+            @Value("${embedding.breaker.minimum-calls:5}") int minimumCalls,
+            @Value("${embedding.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${embedding.breaker.slow-call-ms:2000}") long slowCallMs,
+            @Value("${embedding.breaker.open-duration-ms:30000}") long openDurationMs,
+            @Value("${search.vector.budget-ms:800}") long vectorBudgetMs) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = Duration.ofMillis(slowCallMs).toNanos();
+        this.openDurationNanos = Duration.ofMillis(openDurationMs).toNanos();
+        this.vectorBudgetMs = vectorBudgetMs;
+        // One virtual thread per vector leg: a leg abandoned at the budget parks
+        // cheaply until the provider answers instead of occupying a pool slot
+        this.vectorExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.outcomes = new boolean[windowSize];
+
+        Gauge.builder("embedding.breaker.state", this, b -> b.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        vectorExecutor.shutdownNow();
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public boolean isOpen() {
+        return getState() == State.OPEN;
+    }
+
+    /** Whether a query embedding may be attempted now; in half-open only one probe runs. */
+    synchronized boolean tryAcquire() {
+        State current = getState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess(long elapsedNanos) {
+        if (elapsedNanos > slowCallNanos) {
+            onFailure();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            reset(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Runs the vector leg of a search under the latency budget.
+     *
+     * @return the result, or empty when the breaker is open, the budget ran out
+     *         or the call failed
+     */
+    public <T> Optional<T> withinBudget(Supplier<T> vectorSearch) {
+        if (isOpen()) {
+            return Optional.empty();
+        }
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(vectorSearch, vectorExecutor);
+        try {
+            return Optional.ofNullable(future.get(vectorBudgetMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            // Left running so the gateway still records how slow the provider was
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            logger.warn("Vector search failed, answering from keyword search: {}", e.getCause().getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAt = System.nanoTime();
+        logger.warn("Embedding circuit breaker opened; search is running in keyword-only mode");
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        probeInFlight = false;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
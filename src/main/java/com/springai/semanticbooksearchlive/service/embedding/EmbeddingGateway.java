@@ -0,0 +1,415 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Rate-aware front for the embedding provider; the {@link EmbeddingModel} every
+ * repository and the vector store actually use.
+ * <p>
+ * Calls are admitted against a requests-per-minute and a tokens-per-minute
+ * budget and an adaptive concurrency limit (AIMD: halved on a 429, slowly
+ * raised while latency stays under {@code embedding.gateway.target-latency-ms}).
+ * Throttled and transient failures are retried with jittered exponential
+ * backoff, and batches larger than one provider request allows are split.
+ * </p>
+ * <p>
+ * Query-time embeddings always go first. Ingestion wraps its work in
+ * {@link #bulk(Supplier)}; bulk calls wait while queries are waiting, leave
+ * {@code embedding.gateway.query-reserved-slots} slots and
+ * {@code embedding.gateway.query-reserved-tokens} tokens free, and only then
+ * run, so a large import cannot starve search.
+ * </p>
+ * <p>
+ * Every query embedding is reported to {@link EmbeddingCircuitBreaker}; while
+ * it is open, query embeddings fail fast with
+ * {@link EmbeddingUnavailableException}. Bulk calls are not gated, they already
+ * retry patiently.
+ * </p>
+ */
+@Service
+@Primary
+public class EmbeddingGateway implements EmbeddingModel {
+
+    public enum Priority {
+        QUERY, BULK
+    }
+
+    private static final ThreadLocal<Priority> PRIORITY = ThreadLocal.withInitial(() -> Priority.QUERY);
+
+    private final ObjectProvider<EmbeddingModel> delegates;
+    private volatile EmbeddingModel delegate;
+    private final EmbeddingGatewayProperties properties;
+    private final EmbeddingCircuitBreaker breaker;
+    private final TokenCountEstimator tokenEstimator = new JTokkitTokenCountEstimator();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final TokenBucket requestBudget;
+    private final TokenBucket tokenBudget;
+    private double concurrencyLimit;
+    private int inFlight;
+    private int queriesWaiting;
+
+    private final Timer queryLatency;
+    private final Timer bulkLatency;
+    private final Counter throttled;
+    private final Counter retries;
+
+    @Autowired
+    public EmbeddingGateway(ObjectProvider<EmbeddingModel> delegates, EmbeddingGatewayProperties properties,
+            EmbeddingCircuitBreaker breaker, MeterRegistry meterRegistry) {
+        this.delegates = delegates;
+        this.properties = properties;
+        this.breaker = breaker;
+        this.requestBudget = new TokenBucket(properties.requestsPerMinute());
+        this.tokenBudget = new TokenBucket(properties.tokensPerMinute());
+        this.concurrencyLimit = properties.initialConcurrency();
+
+        this.queryLatency = Timer.builder("embedding.gateway.latency").tag("priority", "query")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.bulkLatency = Timer.builder("embedding.gateway.latency").tag("priority", "bulk")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.throttled = meterRegistry.counter("embedding.gateway.throttled");
+        this.retries = meterRegistry.counter("embedding.gateway.retries");
+        Gauge.builder("embedding.gateway.concurrency.limit", this, g -> g.currentLimit())
+                .register(meterRegistry);
+        Gauge.builder("embedding.gateway.in.flight", this, g -> g.currentInFlight())
+                .register(meterRegistry);
+    }
+
+    /** Constructor for wiring a fixed delegate, e.g. a fake model that injects throttling. */
+    public EmbeddingGateway(EmbeddingModel delegate, EmbeddingGatewayProperties properties,
+            EmbeddingCircuitBreaker breaker, MeterRegistry meterRegistry) {
+        this((ObjectProvider<EmbeddingModel>) null, properties, breaker, meterRegistry);
+        this.delegate = delegate;
+    }
+
+    /** Runs {@code work} with every embedding call on this thread treated as bulk ingestion. */
+    public static <T> T bulk(Supplier<T> work) {
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(Priority.BULK);
+        try {
+            return work.get();
+        } finally {
+            PRIORITY.set(previous);
+        }
+    }
+
+    public static void bulk(Runnable work) {
+        bulk(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (PRIORITY.get() == Priority.BULK) {
+            return callInBatches(request);
+        }
+        if (!breaker.tryAcquire()) {
+            throw new EmbeddingUnavailableException("Embedding provider unavailable (circuit open)");
+        }
+        // One outcome per logical call, retries included: that is the latency search actually sees
+        long start = System.nanoTime();
+        try {
+            EmbeddingResponse response = callInBatches(request);
+            breaker.onSuccess(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+    }
+
+    private EmbeddingResponse callInBatches(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        List<Integer> tokenCounts = inputs.stream().map(tokenEstimator::estimate).collect(Collectors.toList());
+        int totalTokens = tokenCounts.stream().mapToInt(Integer::intValue).sum();
+        if (inputs.size() <= properties.maxBatchInputs() && totalTokens <= properties.maxBatchTokens()) {
+            return callWithRetry(request, totalTokens);
+        }
+
+        // Split oversized batches so each provider request stays within its limits
+        List<Embedding> embeddings = new ArrayList<>();
+        int from = 0;
+        while (from < inputs.size()) {
+            int to = from;
+            int batchTokens = 0;
+            while (to < inputs.size() && to - from < properties.maxBatchInputs()
+                    && (to == from || batchTokens + tokenCounts.get(to) <= properties.maxBatchTokens())) {
+                batchTokens += tokenCounts.get(to);
+                to++;
+            }
+            EmbeddingResponse part = callWithRetry(
+                    new EmbeddingRequest(inputs.subList(from, to), request.getOptions()), batchTokens);
+            for (Embedding embedding : part.getResults()) {
+                embeddings.add(new Embedding(embedding.getOutput(), embeddings.size()));
+            }
+            from = to;
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    private EmbeddingResponse callWithRetry(EmbeddingRequest request, int tokens) {
+        Priority priority = PRIORITY.get();
+        int maxAttempts = 1 + (priority == Priority.QUERY ? properties.queryMaxRetries() : properties.bulkMaxRetries());
+
+        for (int attempt = 1;; attempt++) {
+            acquire(priority, tokens);
+            long start = System.nanoTime();
+            boolean wasThrottled = false;
+            try {
+                EmbeddingResponse response = delegate().call(request);
+                long elapsed = System.nanoTime() - start;
+                (priority == Priority.QUERY ? queryLatency : bulkLatency).record(elapsed, TimeUnit.NANOSECONDS);
+                onSuccess(elapsed);
+                return response;
+            } catch (RuntimeException e) {
+                wasThrottled = isThrottled(e);
+                if (wasThrottled) {
+                    throttled.increment();
+                    onThrottled();
+                }
+                if (attempt >= maxAttempts || !(wasThrottled || isTransient(e))) {
+                    throw e;
+                }
+            } finally {
+                release();
+            }
+            retries.increment();
+            sleep(backoff(attempt, wasThrottled));
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        EmbeddingRequest request = new EmbeddingRequest(List.of(document.getFormattedContent(MetadataMode.EMBED)),
+                EmbeddingOptions.builder().build());
+        return call(request).getResult().getOutput();
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate().dimensions();
+    }
+
+    private EmbeddingModel delegate() {
+        EmbeddingModel current = delegate;
+        if (current == null) {
+            // Resolved lazily: the provider's model is the one EmbeddingModel bean that is not this gateway
+            current = delegates.stream()
+                    .filter(model -> model != this)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No EmbeddingModel to delegate to"));
+            delegate = current;
+        }
+        return current;
+    }
+
+    private void acquire(Priority priority, int tokens) {
+        // A request larger than a whole minute of budget would never fit; let it through on a full bucket
+        double tokenCost = Math.min(tokens, properties.tokensPerMinute());
+        lock.lock();
+        try {
+            if (priority == Priority.QUERY) {
+                queriesWaiting++;
+            }
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long waitNanos = admissionDelay(priority, tokenCost, now);
+                    if (waitNanos == 0) {
+                        requestBudget.consume(1, now);
+                        tokenBudget.consume(tokenCost, now);
+                        inFlight++;
+                        return;
+                    }
+                    changed.awaitNanos(waitNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for embedding capacity", e);
+            } finally {
+                if (priority == Priority.QUERY) {
+                    queriesWaiting--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 0 when the call may start now, otherwise how long to wait before checking again
+    private long admissionDelay(Priority priority, double tokenCost, long now) {
+        long poll = TimeUnit.MILLISECONDS.toNanos(50);
+        int limit = (int) Math.floor(concurrencyLimit);
+        double reservedTokens = 0;
+        if (priority == Priority.BULK) {
+            if (queriesWaiting > 0) {
+                return poll;
+            }
+            limit = Math.max(1, limit - properties.queryReservedSlots());
+            reservedTokens = properties.queryReservedTokens();
+        }
+        if (inFlight >= limit) {
+            return poll;
+        }
+        long requestWait = requestBudget.nanosUntilAvailable(1, now);
+        long tokenWait = tokenBudget.nanosUntilAvailable(tokenCost + reservedTokens, now);
+        long wait = Math.max(requestWait, tokenWait);
+        return wait == 0 ? 0 : Math.min(Math.max(wait, 1), poll);
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long elapsedNanos) {
+        lock.lock();
+        try {
+            if (elapsedNanos <= Duration.ofMillis(properties.targetLatencyMs()).toNanos()) {
+                // Additive increase: about one extra slot per "limit" fast calls
+                concurrencyLimit = Math.min(properties.maxConcurrency(), concurrencyLimit + 1.0 / concurrencyLimit);
+            } else {
+                concurrencyLimit = Math.max(properties.minConcurrency(), concurrencyLimit * 0.95);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onThrottled() {
+        lock.lock();
+        try {
+            concurrencyLimit = Math.max(properties.minConcurrency(), concurrencyLimit / 2);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Full jitter; throttling starts from a longer base delay than transient errors
+    private long backoff(int attempt, boolean wasThrottled) {
+        long base = wasThrottled ? properties.throttledBackoffMs() : properties.initialBackoffMs();
+        long cap = Math.min(properties.maxBackoffMs(), base << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(base / 2, Math.max(base / 2 + 1, cap + 1));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    static boolean isThrottled(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpClientErrorException.TooManyRequests) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null && (message.contains("429") || message.contains("rate_limit_exceeded"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientAiException || t instanceof IOException
+                    || t instanceof HttpServerErrorException || t instanceof ResourceAccessException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double currentLimit() {
+        lock.lock();
+        try {
+            return concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int currentInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Per-minute budget refilled continuously; guarded by the gateway lock. */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double available;
+        private long lastRefill;
+
+        TokenBucket(double perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+            this.lastRefill = System.nanoTime();
+        }
+
+        long nanosUntilAvailable(double amount, long now) {
+            refill(now);
+            double needed = Math.min(amount, capacity) - available;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed / refillPerNano);
+        }
+
+        void consume(double amount, long now) {
+            refill(now);
+            available -= amount;
+        }
+
+        private void refill(long now) {
+            available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
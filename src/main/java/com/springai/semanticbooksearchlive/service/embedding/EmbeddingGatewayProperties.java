@@ -0,0 +1,27 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Budgets and tuning for {@link EmbeddingGateway}. Defaults match OpenAI's
+ * tier-1 limits for {@code text-embedding-3-small}.
+ */
+@Component
+public record EmbeddingGatewayProperties(
+        @Value("${embedding.gateway.requests-per-minute:3000}") int requestsPerMinute,
+        @Value("${embedding.gateway.tokens-per-minute:1000000}") int tokensPerMinute,
+        @Value("${embedding.gateway.initial-concurrency:4}") int initialConcurrency,
+        @Value("${embedding.gateway.min-concurrency:1}") int minConcurrency,
+        @Value("${embedding.gateway.max-concurrency:16}") int maxConcurrency,
+        @Value("${embedding.gateway.target-latency-ms:1500}") long targetLatencyMs,
+        @Value("${embedding.gateway.query-reserved-slots:1}") int queryReservedSlots,
+        @Value("${embedding.gateway.query-reserved-tokens:20000}") int queryReservedTokens,
+        @Value("${embedding.gateway.query-max-retries:2}") int queryMaxRetries,
+        @Value("${embedding.gateway.bulk-max-retries:6}") int bulkMaxRetries,
+        @Value("${embedding.gateway.initial-backoff-ms:200}") long initialBackoffMs,
+        @Value("${embedding.gateway.throttled-backoff-ms:1000}") long throttledBackoffMs,
+        @Value("${embedding.gateway.max-backoff-ms:30000}") long maxBackoffMs,
+        @Value("${embedding.gateway.max-batch-inputs:512}") int maxBatchInputs,
+        @Value("${embedding.gateway.max-batch-tokens:100000}") int maxBatchTokens) {
+}
@@ -0,0 +1,153 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import com.springai.semanticbooksearchlive.model.EmbeddingMigrationStatus;
+import com.springai.semanticbooksearchlive.model.EmbeddingMigrationStatus.TableCoverage;
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository;
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository.PendingRow;
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository.SpaceState;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves every vector table to another {@link EmbeddingSpaces embedding space}
+ * without downtime.
+ * <ol>
+ * <li>{@link #start(String)} adds the target space's columns; from then on
+ * every write embeds into both spaces.</li>
+ * <li>A background job re-embeds existing rows into the target,
+ * {@code embedding.migration.batch-size} rows every
+ * {@code embedding.migration.interval-ms}, as bulk work so searches keep
+ * priority at the provider. Chapter vectors are recomputed from their chunks.
+ * Across instances, a lease in the state row lets only one run it.</li>
+ * <li>Once no row lacks a target vector, the target's HNSW indexes are built
+ * concurrently and reads switch over in one statement.</li>
+ * <li>The previous space is still written until {@link #finish()}; after
+ * that its columns can be dropped.</li>
+ * </ol>
+ */
+@Service
+public class EmbeddingMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingMigrationService.class);
+
+    private final EmbeddingSpaces spaces;
+    private final EmbeddingSpaceRepository repository;
+    private final int batchSize;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter backfilled;
+
+    public EmbeddingMigrationService(EmbeddingSpaces spaces, EmbeddingSpaceRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${embedding.migration.batch-size:100}") int batchSize,
+            @Value("${embedding.migration.lease-seconds:600}") long leaseSeconds) {
+        this.spaces = spaces;
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.backfilled = meterRegistry.counter("embedding.migration.backfilled");
+    }
+
+    public EmbeddingMigrationStatus status() {
+        SpaceState state = repository.findState();
+        List<TableCoverage> coverage = new ArrayList<>();
+        if (state.targetSpace() != null) {
+            Space target = spaces.get(state.targetSpace());
+            for (String table : EmbeddingSpaceRepository.VECTOR_TABLES) {
+                coverage.add(new TableCoverage(table, repository.countRows(table),
+                        repository.countMissing(table, target)));
+            }
+        }
+        return new EmbeddingMigrationStatus(state.readSpace(), state.targetSpace(), state.previousSpace(),
+                coverage);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code target} is not configured or
+     *                                  is already the read space
+     */
+    public EmbeddingMigrationStatus start(String target) {
+        Space space = spaces.get(target);
+        Space read = spaces.read();
+        if (space.equals(read)) {
+            throw new IllegalArgumentException("Reads already use embedding space " + target);
+        }
+        if (space.column().equals(read.column())) {
+            throw new IllegalArgumentException("Embedding space " + target + " shares its column with "
+                    + read.name());
+        }
+        repository.addColumn(space);
+        if (!repository.startMigration(read.name(), space.name())) {
+            throw new IllegalStateException("Read space changed meanwhile; retry");
+        }
+        spaces.refresh();
+        return status();
+    }
+
+    /** Ends dual writes: only the read space is written from now on. */
+    public EmbeddingMigrationStatus finish() {
+        repository.finishMigration();
+        spaces.refresh();
+        return status();
+    }
+
+    @Scheduled(fixedDelayString = "${embedding.migration.interval-ms:2000}")
+    public void backfill() {
+        Space target = spaces.target().orElse(null);
+        if (target == null || !repository.tryLease(instanceId, lease)) {
+            return;
+        }
+        try {
+            int remaining = batchSize;
+            for (String table : EmbeddingSpaceRepository.VECTOR_TABLES) {
+                if (remaining == 0) {
+                    break;
+                }
+                // Chapter vectors are centroids of their chunks, not embedded text
+                if (!table.equals(EmbeddingSpaceRepository.CHAPTER_TABLE)) {
+                    remaining -= backfill(table, target, remaining);
+                }
+            }
+            // Nothing left to embed: derive the chapter vectors, then try to switch
+            if (remaining == batchSize) {
+                repository.backfillChapterCentroids(target);
+                complete(target);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Embedding backfill into {} failed", target.name(), e);
+        }
+    }
+
+    private int backfill(String table, Space target, int limit) {
+        List<PendingRow> rows = repository.findMissing(table, target, limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<String> texts = rows.stream().map(PendingRow::content).toList();
+        List<float[]> vectors = EmbeddingGateway.bulk(() -> spaces.embed(target, texts));
+        repository.updateVectors(table, target, rows.stream().map(PendingRow::id).toList(), vectors);
+        backfilled.increment(rows.size());
+        return rows.size();
+    }
+
+    private void complete(Space target) {
+        Space read = spaces.read();
+        repository.createIndexes(target);
+        if (repository.switchReads(read, target)) {
+            logger.info("Embedding reads switched from {} to {}; {} is still written until the migration is finished",
+                    read.name(), target.name(), read.name());
+            spaces.refresh();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes {@link EmbeddingCircuitBreaker} as the {@code embeddingProvider}
+ * health contributor, which is part of the readiness group.
+ * <p>
+ * An open (or half-open) breaker reports {@code DEGRADED} rather than
+ * {@code DOWN}: search still answers from keyword search, so the instance
+ * should stay in rotation, but dashboards and probes can see the state.
+ * </p>
+ */
+@Component
+public class EmbeddingProviderHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "Keyword-only search; embedding provider unavailable");
+
+    private final EmbeddingCircuitBreaker breaker;
+
+    public EmbeddingProviderHealthIndicator(EmbeddingCircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Health health() {
+        EmbeddingCircuitBreaker.State state = breaker.getState();
+        Health.Builder builder = state == EmbeddingCircuitBreaker.State.CLOSED ? Health.up() : Health.status(DEGRADED);
+        return builder.withDetail("circuit", state.name()).build();
+    }
+}
@@ -0,0 +1,290 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository;
+import com.springai.semanticbooksearchlive.repository.EmbeddingSpaceRepository.SpaceState;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The embedding spaces vectors are stored in, and which of them reads and
+ * writes use right now.
+ * <p>
+ * A space is one embedding model at one dimension
+ * ({@code embedding.space.<name>.model} / {@code .dimensions}), stored in its
+ * own column ({@code .column}) of every vector table. Reads use a single space.
+ * While a migration to another space runs (see
+ * {@link EmbeddingMigrationService}), writes go to both spaces, and after the
+ * switch-over the previous space keeps being written until the migration is
+ * finished, so instances that have not seen the switch yet, or a rollback,
+ * still find complete vectors.
+ * </p>
+ * <p>
+ * The state lives in {@code embedding_space_state} and is re-read every
+ * {@code embedding.space.refresh-ms}. Callers take {@link #read()} once per
+ * query and use that space for both the query embedding and the column, so a
+ * switch-over never mixes spaces within one query.
+ * </p>
+ */
+@Component
+public class EmbeddingSpaces {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingSpaces.class);
+
+    /**
+     * One embedding model at one dimension, stored in {@code column}.
+     * <p>
+     * With {@code shortlistDimensions} above zero, the HNSW index covers only
+     * the first {@code shortlistDimensions} components of each vector (an
+     * expression index, nothing extra is stored). Matryoshka-trained models
+     * such as text-embedding-3 keep most of their ranking quality in such a
+     * prefix, and cosine distance needs no renormalisation of it. Searches
+     * take {@code shortlistOversample} times their limit from that smaller
+     * index and rescore the shortlist on the full vectors.
+     * </p>
+     */
+    public record Space(String name, String model, int dimensions, String column, int shortlistDimensions,
+            int shortlistOversample) {
+
+        /** {@code template} with every {@code {column}} replaced by this space's column. */
+        public String sql(String template) {
+            return template.replace("{column}", column);
+        }
+
+        /**
+         * The {@code limit} rows of {@code query} nearest to {@code :embedding},
+         * nearest first. {@code query} selects a {@code distance} column
+         * ({@code {column} <=> :embedding::vector}) and ends before its
+         * ORDER BY; {@code {column}} is replaced as by {@link #sql(String)}.
+         */
+        public String nearest(String query, String limit) {
+            if (shortlistDimensions == 0) {
+                return sql(query + "ORDER BY {column} <=> :embedding::vector\nLIMIT " + limit + "\n");
+            }
+            return sql("SELECT * FROM (\n" + query
+                    + "ORDER BY " + prefix("{column}") + " <=> " + prefix(":embedding::vector") + "\n"
+                    + "LIMIT " + limit + " * " + shortlistOversample + "\n"
+                    + ") shortlist\nORDER BY distance\nLIMIT " + limit + "\n");
+        }
+
+        /** Rows the index scan of {@link #nearest} reads for {@code limit} results. */
+        public int scanLimit(int limit) {
+            return shortlistDimensions == 0 ? limit : limit * shortlistOversample;
+        }
+
+        /** What the HNSW index of this space covers: the column, or its shortlist prefix. */
+        public String indexedExpression() {
+            return shortlistDimensions == 0 ? column : "(" + prefix(column) + ")";
+        }
+
+        /** Named after the indexed expression, so a changed prefix length gets a new index. */
+        public String indexName(String table) {
+            return "idx_" + table + "_" + column + (shortlistDimensions == 0 ? "" : "_s" + shortlistDimensions);
+        }
+
+        private String prefix(String vector) {
+            return "subvector(" + vector + ", 1, " + shortlistDimensions + ")::vector(" + shortlistDimensions + ")";
+        }
+    }
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingSpaceRepository repository;
+    private final Map<String, Space> spaces = new LinkedHashMap<>();
+    private final String initialSpace;
+    // Recent query embeddings by space and text, least recently used first
+    private final Map<String, float[]> recentQueries;
+
+    private volatile Space read;
+    private volatile Space target;
+    private volatile Space previous;
+
+    public EmbeddingSpaces(EmbeddingModel embeddingModel, EmbeddingSpaceRepository repository,
+            Environment environment) {
+        this.embeddingModel = embeddingModel;
+        this.repository = repository;
+        for (String name : environment.getProperty("embedding.space.names", String[].class,
+                new String[] { "v1" })) {
+            String prefix = "embedding.space." + name.trim();
+            String column = environment.getProperty(prefix + ".column", "embedding");
+            if (!IDENTIFIER.matcher(column).matches()) {
+                throw new IllegalStateException("Invalid column for embedding space " + name + ": " + column);
+            }
+            int dimensions = environment.getProperty(prefix + ".dimensions", Integer.class, 1536);
+            int shortlist = environment.getProperty(prefix + ".shortlist-dimensions", Integer.class, 0);
+            if (shortlist < 0 || shortlist >= dimensions) {
+                throw new IllegalStateException("Shortlist dimensions of embedding space " + name
+                        + " must be between 0 (off) and " + (dimensions - 1) + ": " + shortlist);
+            }
+            spaces.put(name.trim(), new Space(name.trim(),
+                    environment.getProperty(prefix + ".model", "text-embedding-3-small"),
+                    dimensions,
+                    column,
+                    shortlist,
+                    Math.max(1, environment.getProperty(prefix + ".shortlist-oversample", Integer.class, 4))));
+        }
+        this.initialSpace = environment.getProperty("embedding.space.initial", "v1");
+        int recentQueryLimit = environment.getProperty("embedding.query-cache.size", Integer.class, 256);
+        this.recentQueries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > recentQueryLimit;
+            }
+        };
+        get(initialSpace);
+    }
+
+    @PostConstruct
+    void init() {
+        repository.initState(initialSpace);
+        refresh();
+        // Columns of the spaces in use are created on first start (the migrations
+        // leave them out) and must match the configured dimension afterwards
+        for (Space space : writes()) {
+            repository.addColumn(space);
+            verifyDimensions(space);
+        }
+    }
+
+    /**
+     * Builds the read space's HNSW indexes once the application is up, rather
+     * than on the startup path: a build over a large table takes minutes.
+     * Without its index the read space is still searched correctly, by a
+     * sequential scan, so a late or failed build only costs latency.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        Space space = read;
+        try {
+            repository.createIndexes(space);
+        } catch (RuntimeException e) {
+            logger.warn("Could not build the HNSW indexes of embedding space {}", space.name(), e);
+        }
+    }
+
+    /**
+     * Refuses to start on vectors of another dimension: writes would fail, and
+     * changing a space's dimension in place would leave its stored vectors
+     * meaningless. Another dimension is a new space, reached by a migration.
+     */
+    private void verifyDimensions(Space space) {
+        for (String table : EmbeddingSpaceRepository.VECTOR_TABLES) {
+            Integer dimensions = repository.findColumnDimensions(table, space);
+            if (dimensions == null || dimensions != space.dimensions()) {
+                throw new IllegalStateException(table + "." + space.column() + " holds vector("
+                        + dimensions + ") but embedding space " + space.name() + " is configured for "
+                        + space.dimensions() + " dimensions; configure a new space and migrate to it instead");
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${embedding.space.refresh-ms:10000}",
+            initialDelayString = "${embedding.space.refresh-ms:10000}")
+    public void refresh() {
+        SpaceState state = repository.findState();
+        this.target = state.targetSpace() != null ? get(state.targetSpace()) : null;
+        this.previous = state.previousSpace() != null ? get(state.previousSpace()) : null;
+        this.read = get(state.readSpace());
+    }
+
+    public Space read() {
+        return read;
+    }
+
+    /** The space being migrated to, until reads switch over to it. */
+    public Optional<Space> target() {
+        return Optional.ofNullable(target);
+    }
+
+    /** Every space new vectors are written to, the read space first. */
+    public List<Space> writes() {
+        List<Space> writes = new ArrayList<>();
+        writes.add(read);
+        if (target != null && !target.equals(read)) {
+            writes.add(target);
+        }
+        if (previous != null && !previous.equals(read)) {
+            writes.add(previous);
+        }
+        return writes;
+    }
+
+    /** @throws IllegalArgumentException if no space of that name is configured */
+    public Space get(String name) {
+        Space space = spaces.get(name);
+        if (space == null) {
+            throw new IllegalArgumentException("Unknown embedding space: " + name);
+        }
+        return space;
+    }
+
+    public float[] embed(Space space, String text) {
+        return embed(space, List.of(text)).get(0);
+    }
+
+    /**
+     * Embedding of a search or chat question. The last
+     * {@code embedding.query-cache.size} questions are remembered, so the
+     * retrieval of a chat and the semantic cache in front of its model call
+     * embed the question once between them.
+     */
+    public float[] embedQuery(Space space, String text) {
+        String key = space.name() + "\n" + text;
+        synchronized (recentQueries) {
+            float[] cached = recentQueries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        float[] embedding = embed(space, text);
+        synchronized (recentQueries) {
+            recentQueries.put(key, embedding);
+        }
+        return embedding;
+    }
+
+    public List<float[]> embed(Space space, List<String> texts) {
+        EmbeddingRequest request = new EmbeddingRequest(texts, EmbeddingOptions.builder()
+                .model(space.model())
+                .dimensions(space.dimensions())
+                .build());
+        return embeddingModel.call(request).getResults().stream()
+                .map(Embedding::getOutput)
+                .toList();
+    }
+
+    /** Embeddings of {@code texts} in every space in {@link #writes()}, in that order. */
+    public Map<Space, List<float[]>> embedForWrite(List<String> texts) {
+        Map<Space, List<float[]>> embeddings = new LinkedHashMap<>();
+        for (Space space : writes()) {
+            embeddings.put(space, embed(space, texts));
+        }
+        return embeddings;
+    }
+
+    /** The vectors of row {@code index} of an {@link #embedForWrite(List)} result. */
+    public static Map<Space, float[]> row(Map<Space, List<float[]>> embeddings, int index) {
+        Map<Space, float[]> row = new LinkedHashMap<>();
+        embeddings.forEach((space, vectors) -> row.put(space, vectors.get(index)));
+        return row;
+    }
+}
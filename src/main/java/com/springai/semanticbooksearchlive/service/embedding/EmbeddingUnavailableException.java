@@ -0,0 +1,13 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+/**
+ * Thrown for a query embedding while {@link EmbeddingCircuitBreaker} is open.
+ * Search catches it (via {@link EmbeddingCircuitBreaker#withinBudget}) and
+ * answers from keyword search instead.
+ */
+public class EmbeddingUnavailableException extends RuntimeException {
+
+    public EmbeddingUnavailableException(String message) {
+        super(message);
+    }
+}
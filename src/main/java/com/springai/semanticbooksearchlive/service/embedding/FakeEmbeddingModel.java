@@ -0,0 +1,159 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the embedding provider, active with the
+ * {@code fake-embeddings} and {@code loadtest} profiles.
+ * <p>
+ * Vectors are deterministic feature hashes: every lower-cased word and word
+ * bigram is hashed to a dimension and a sign, and the sum is normalised to
+ * unit length. Texts that share words therefore land near each other, so
+ * similarity search, the HNSW index and rank fusion do realistic work without
+ * a provider. Like the real provider, it enforces a tokens-per-minute and a
+ * requests-per-minute window and answers with a 429-style error when either is
+ * exceeded, so the {@link EmbeddingGateway}'s throttling behaviour can be
+ * exercised offline.
+ * </p>
+ */
+@Component
+@Profile({ "fake-embeddings", "loadtest" })
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    private static final int DIMENSIONS = 1536;
+
+    private final TokenCountEstimator tokenEstimator = new JTokkitTokenCountEstimator();
+    private final int tokensPerMinute;
+    private final int requestsPerMinute;
+    private final long latencyMs;
+
+    private long windowStart = System.nanoTime();
+    private long windowTokens;
+    private long windowRequests;
+
+    public FakeEmbeddingModel(@Value("${fake.embedding.tokens-per-minute:200000}") int tokensPerMinute,
+            @Value("${fake.embedding.requests-per-minute:500}") int requestsPerMinute,
+            @Value("${fake.embedding.latency-ms:20}") long latencyMs) {
+        this.tokensPerMinute = tokensPerMinute;
+        this.requestsPerMinute = requestsPerMinute;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        int tokens = request.getInstructions().stream().mapToInt(tokenEstimator::estimate).sum();
+        admit(tokens);
+        sleep(latencyMs);
+
+        // Honours a requested dimension, as text-embedding-3 does, so embedding spaces can be tried offline
+        int dimensions = request.getOptions() != null && request.getOptions().getDimensions() != null
+                ? request.getOptions().getDimensions()
+                : DIMENSIONS;
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(vector(text, dimensions), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return call(new EmbeddingRequest(List.of(document.getFormattedContent(MetadataMode.EMBED)), null))
+                .getResult().getOutput();
+    }
+
+    @Override
+    public int dimensions() {
+        return DIMENSIONS;
+    }
+
+    private synchronized void admit(int tokens) {
+        long now = System.nanoTime();
+        if (now - windowStart >= TimeUnit.MINUTES.toNanos(1)) {
+            windowStart = now;
+            windowTokens = 0;
+            windowRequests = 0;
+        }
+        if (windowRequests + 1 > requestsPerMinute || windowTokens + tokens > tokensPerMinute) {
+            // Same shape as the OpenAI client's error for HTTP 429
+            throw new NonTransientAiException("HTTP 429 - rate_limit_exceeded: fake provider limit reached");
+        }
+        windowRequests++;
+        windowTokens += tokens;
+    }
+
+    private static float[] vector(String text, int dimensions) {
+        float[] vector = new float[dimensions];
+        String previous = null;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            addFeature(vector, word, 1.0f);
+            if (previous != null) {
+                addFeature(vector, previous + ' ' + word, 0.5f);
+            }
+            previous = word;
+        }
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0.0) {
+            // No words at all: a fixed direction keeps the vector valid for cosine distance
+            vector[0] = 1.0f;
+            return vector;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+
+    private static void addFeature(float[] vector, String feature, float weight) {
+        int hash = murmurMix(feature);
+        // Low bits pick the dimension, the top bit the sign, so collisions cancel out on average
+        int index = Math.floorMod(hash, vector.length);
+        vector[index] += hash < 0 ? -weight : weight;
+    }
+
+    // String.hashCode() clusters for short similar words; run the bytes through a murmur3-style mix
+    private static int murmurMix(String feature) {
+        int h = 0x9747b28c;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x5bd1e995;
+            h ^= h >>> 15;
+        }
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
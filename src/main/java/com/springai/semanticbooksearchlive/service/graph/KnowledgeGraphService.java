@@ -22,7 +22,11 @@ public class KnowledgeGraphService {
 
     public GraphData getGraphData() {
         // 1. Fetch all documents with raw embeddings
-        List<Document> documents = repository.findAllWithEmbeddings();
+        return buildGraph(repository.findAllWithEmbeddings());
+    }
+
+    // Package-private for the JMH benchmarks
+    GraphData buildGraph(List<Document> documents) {
         List<GraphData.GraphNode> nodes = new ArrayList<>();
         List<GraphData.GraphLink> links = new ArrayList<>();
 
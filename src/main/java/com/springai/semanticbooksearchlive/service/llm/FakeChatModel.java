@@ -0,0 +1,104 @@
+package com.springai.semanticbooksearchlive.service.llm;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Local stand-in for the chat provider, active with the {@code loadtest}
+ * profile.
+ * <p>
+ * Answers are deterministic filler text of {@code fake.chat.completion-tokens}
+ * words, seeded from the prompt. A blocking call takes the time to first token
+ * plus one token delay per word, which is also the pacing of the streamed
+ * variant, so both paths hold a scheduler slot and a request thread as long
+ * as a real completion of that length would. Usage is reported like the
+ * provider's, so the {@code llm.*} metrics are populated.
+ * </p>
+ * <p>
+ * The text is not JSON; features that parse structured output (quiz,
+ * curriculum, evaluation) fail under this profile.
+ * </p>
+ */
+@Component
+@Profile("loadtest")
+public class FakeChatModel implements ChatModel {
+
+    private static final String MODEL = "fake-chat";
+    private static final String[] WORDS = { "the", "story", "book", "chapter", "character", "reader", "theme",
+            "author", "idea", "argument", "evidence", "question", "answer", "history", "world", "journey",
+            "and", "of", "in", "that", "with", "because", "however", "therefore" };
+
+    private final TokenCountEstimator tokenEstimator = new JTokkitTokenCountEstimator();
+    private final long firstTokenMs;
+    private final long tokenDelayMs;
+    private final int completionTokens;
+
+    public FakeChatModel(@Value("${fake.chat.first-token-ms:300}") long firstTokenMs,
+            @Value("${fake.chat.token-delay-ms:15}") long tokenDelayMs,
+            @Value("${fake.chat.completion-tokens:150}") int completionTokens) {
+        this.firstTokenMs = firstTokenMs;
+        this.tokenDelayMs = tokenDelayMs;
+        this.completionTokens = completionTokens;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<String> tokens = tokens(prompt);
+        sleep(firstTokenMs + tokenDelayMs * tokens.size());
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(String.join("", tokens)))),
+                metadata(prompt, tokens.size()));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        List<String> tokens = tokens(prompt);
+        Flux<ChatResponse> chunks = Flux.fromIterable(tokens)
+                .delayElements(Duration.ofMillis(tokenDelayMs))
+                .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))));
+        // The provider sends usage in a final, content-less chunk
+        Flux<ChatResponse> usage = Flux.just(new ChatResponse(List.of(new Generation(new AssistantMessage(""))),
+                metadata(prompt, tokens.size())));
+        return chunks.concatWith(usage).delaySubscription(Duration.ofMillis(firstTokenMs));
+    }
+
+    private List<String> tokens(Prompt prompt) {
+        Random random = new Random(prompt.getContents().hashCode());
+        List<String> tokens = new ArrayList<>(completionTokens);
+        for (int i = 0; i < completionTokens; i++) {
+            tokens.add((i == 0 ? "" : " ") + WORDS[random.nextInt(WORDS.length)]);
+        }
+        return tokens;
+    }
+
+    private ChatResponseMetadata metadata(Prompt prompt, int outputTokens) {
+        int promptTokens = tokenEstimator.estimate(prompt.getContents());
+        return ChatResponseMetadata.builder()
+                .model(MODEL)
+                .usage(new DefaultUsage(promptTokens, outputTokens))
+                .build();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.springai.semanticbooksearchlive.service.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for every chat model call.
+ * <p>
+ * Each {@link Feature} is a bulkhead with its own concurrency limit and queue
+ * length ({@code llm.scheduler.<feature>.max-concurrency} /
+ * {@code .max-queue}). On top of that, {@code llm.scheduler.max-concurrency}
+ * caps calls across all features, i.e. the shared provider quota. When a slot
+ * frees up it goes to the waiting call with the highest priority (lowest
+ * {@link Feature#priority}), FIFO within a priority, so interactive chat is
+ * never stuck behind a burst of quiz or curriculum generation.
+ * </p>
+ * <p>
+ * A call that finds its feature's queue full, or waits longer than
+ * {@code llm.scheduler.max-wait-ms}, fails fast with
+ * {@link LlmCapacityExceededException}.
+ * </p>
+ */
+@Service
+public class LlmCallScheduler {
+
+    public enum Feature {
+        CHAT(0, 8, 50),
+        DEBATE(0, 4, 20),
+        STUDY_TOOLS(1, 3, 20),
+        CURRICULUM(2, 2, 10),
+        EVALUATION(3, 2, 20),
+        SUMMARY(3, 2, 50);
+
+        private final int priority;
+        private final int defaultMaxConcurrency;
+        private final int defaultMaxQueue;
+
+        Feature(int priority, int defaultMaxConcurrency, int defaultMaxQueue) {
+            this.priority = priority;
+            this.defaultMaxConcurrency = defaultMaxConcurrency;
+            this.defaultMaxQueue = defaultMaxQueue;
+        }
+
+        public int priority() {
+            return priority;
+        }
+
+        String propertyKey() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    /** Held for the duration of one call; release exactly once. */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final int maxConcurrency;
+    private final long maxWaitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dispatched = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private final Map<Feature, Bulkhead> bulkheads = new EnumMap<>(Feature.class);
+    private int active;
+    private long sequence;
+
+    private static final class Bulkhead {
+        final int maxConcurrency;
+        final int maxQueue;
+        final Timer queueWait;
+        final Timer callDuration;
+        final Counter rejected;
+        int active;
+        int queued;
+
+        Bulkhead(int maxConcurrency, int maxQueue, Timer queueWait, Timer callDuration, Counter rejected) {
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueue = maxQueue;
+            this.queueWait = queueWait;
+            this.callDuration = callDuration;
+            this.rejected = rejected;
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final Feature feature;
+        final long sequence;
+        boolean granted;
+
+        Waiter(Feature feature, long sequence) {
+            this.feature = feature;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = Integer.compare(feature.priority(), other.feature.priority());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public LlmCallScheduler(Environment environment, MeterRegistry meterRegistry,
+            @Value("${llm.scheduler.max-concurrency:10}") int maxConcurrency,
+            @Value("${llm.scheduler.max-wait-ms:30000}") long maxWaitMs) {
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitNanos = Duration.ofMillis(maxWaitMs).toNanos();
+
+        for (Feature feature : Feature.values()) {
+            String prefix = "llm.scheduler." + feature.propertyKey();
+            String tag = feature.propertyKey();
+            Bulkhead bulkhead = new Bulkhead(
+                    environment.getProperty(prefix + ".max-concurrency", Integer.class,
+                            feature.defaultMaxConcurrency),
+                    environment.getProperty(prefix + ".max-queue", Integer.class, feature.defaultMaxQueue),
+                    Timer.builder("llm.scheduler.queue.wait")
+                            .tag("feature", tag)
+                            .publishPercentileHistogram()
+                            .register(meterRegistry),
+                    Timer.builder("llm.scheduler.call")
+                            .tag("feature", tag)
+                            .register(meterRegistry),
+                    meterRegistry.counter("llm.scheduler.rejected", "feature", tag));
+            bulkheads.put(feature, bulkhead);
+
+            Gauge.builder("llm.scheduler.active", this, s -> s.activeCount(feature))
+                    .tag("feature", tag)
+                    .register(meterRegistry);
+            Gauge.builder("llm.scheduler.queued", this, s -> s.queuedCount(feature))
+                    .tag("feature", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Blocks until the call may proceed.
+     *
+     * @throws LlmCapacityExceededException when the feature's queue is full or
+     *                                      the wait exceeds the limit
+     */
+    public Permit acquire(Feature feature) {
+        Bulkhead bulkhead = bulkheads.get(feature);
+        long enqueuedAt = System.nanoTime();
+        Waiter waiter;
+
+        lock.lock();
+        try {
+            if (bulkhead.queued >= bulkhead.maxQueue) {
+                bulkhead.rejected.increment();
+                throw new LlmCapacityExceededException(feature, retryAfterSeconds(bulkhead),
+                        "Too many pending " + feature.propertyKey() + " requests");
+            }
+            waiter = new Waiter(feature, sequence++);
+            waiters.add(waiter);
+            bulkhead.queued++;
+            dispatch();
+
+            long remaining = maxWaitNanos;
+            while (!waiter.granted) {
+                if (remaining <= 0) {
+                    waiters.remove(waiter);
+                    bulkhead.queued--;
+                    bulkhead.rejected.increment();
+                    throw new LlmCapacityExceededException(feature, retryAfterSeconds(bulkhead),
+                            "Timed out waiting for a " + feature.propertyKey() + " slot");
+                }
+                try {
+                    remaining = dispatched.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (waiter.granted) {
+                        // Granted while being interrupted: hand the slot back
+                        bulkhead.active--;
+                        active--;
+                        dispatch();
+                    } else {
+                        waiters.remove(waiter);
+                        bulkhead.queued--;
+                    }
+                    throw new IllegalStateException("Interrupted while waiting for an LLM slot", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        long startedAt = System.nanoTime();
+        bulkhead.queueWait.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+        return new Permit() {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            public void close() {
+                if (!released.compareAndSet(false, true)) {
+                    return;
+                }
+                bulkhead.callDuration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                release(bulkhead);
+            }
+        };
+    }
+
+    private void release(Bulkhead bulkhead) {
+        lock.lock();
+        try {
+            bulkhead.active--;
+            active--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hands free slots to waiters in priority order; must hold the lock
+    private void dispatch() {
+        if (active >= maxConcurrency || waiters.isEmpty()) {
+            return;
+        }
+        boolean grantedAny = false;
+        PriorityQueue<Waiter> skipped = new PriorityQueue<>();
+        while (active < maxConcurrency && !waiters.isEmpty()) {
+            Waiter next = waiters.poll();
+            Bulkhead bulkhead = bulkheads.get(next.feature);
+            if (bulkhead.active >= bulkhead.maxConcurrency) {
+                // Its own bulkhead is full; lower priorities may still run
+                skipped.add(next);
+                continue;
+            }
+            next.granted = true;
+            bulkhead.queued--;
+            bulkhead.active++;
+            active++;
+            grantedAny = true;
+        }
+        waiters.addAll(skipped);
+        if (grantedAny) {
+            dispatched.signalAll();
+        }
+    }
+
+    // Rough estimate: how many "rounds" of this feature are queued ahead
+    private long retryAfterSeconds(Bulkhead bulkhead) {
+        double meanSeconds = bulkhead.callDuration.count() > 0
+                ? bulkhead.callDuration.mean(TimeUnit.SECONDS)
+                : 5.0;
+        double rounds = (double) (bulkhead.queued + 1) / Math.max(1, bulkhead.maxConcurrency);
+        return Math.max(1, (long) Math.ceil(meanSeconds * rounds));
+    }
+
+    private int activeCount(Feature feature) {
+        lock.lock();
+        try {
+            return bulkheads.get(feature).active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int queuedCount(Feature feature) {
+        lock.lock();
+        try {
+            return bulkheads.get(feature).queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
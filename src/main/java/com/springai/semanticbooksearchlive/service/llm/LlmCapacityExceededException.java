@@ -0,0 +1,26 @@
+package com.springai.semanticbooksearchlive.service.llm;
+
+/**
+ * Thrown when an LLM call cannot be queued (or waited too long) because its
+ * feature's bulkhead is full. Mapped to {@code 429 Too Many Requests} with a
+ * {@code Retry-After} header.
+ */
+public class LlmCapacityExceededException extends RuntimeException {
+
+    private final LlmCallScheduler.Feature feature;
+    private final long retryAfterSeconds;
+
+    public LlmCapacityExceededException(LlmCallScheduler.Feature feature, long retryAfterSeconds, String message) {
+        super(message);
+        this.feature = feature;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public LlmCallScheduler.Feature getFeature() {
+        return feature;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,130 @@
+package com.springai.semanticbooksearchlive.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency of every retrieval, ingestion and generation stage, tagged by the
+ * feature it served.
+ * <p>
+ * Stages are recorded in {@code rag.stage.duration} (tags {@code stage},
+ * {@code feature}, {@code outcome}); LLM calls in {@code llm.call.duration}
+ * and their token usage in {@code llm.tokens} (tag {@code type} =
+ * {@code prompt}/{@code completion}). All publish percentile histograms and
+ * are scraped from {@code /actuator/prometheus}.
+ * </p>
+ */
+@Component
+public class StageMetrics {
+
+    public enum Stage {
+        QUERY_EMBEDDING("query_embedding"),
+        VECTOR_QUERY("vector_query"),
+        KEYWORD_SEARCH("keyword_search"),
+        RANK_FUSION("rank_fusion"),
+        DOCUMENT_PARSE("document_parse"),
+        CHUNKING("chunking"),
+        BATCH_EMBEDDING("batch_embedding");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Feature {
+        CATALOG("catalog"),
+        BOOK_CHAT("book_chat"),
+        STUDY_ROOM("study_room"),
+        DEBATE("debate"),
+        CURRICULUM("curriculum"),
+        EVALUATION("evaluation");
+
+        private final String tag;
+
+        Feature(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public StageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Times {@code work} as {@code stage} of {@code feature}; failures are recorded with {@code outcome=error}. */
+    public <T> T time(Stage stage, Feature feature, Supplier<T> work) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = work.get();
+            success = true;
+            return result;
+        } finally {
+            record(stage, feature, System.nanoTime() - start, success);
+        }
+    }
+
+    public void time(Stage stage, Feature feature, Runnable work) {
+        time(stage, feature, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** For stages timed by hand, e.g. where the work throws checked exceptions. */
+    public void record(Stage stage, Feature feature, long nanos, boolean success) {
+        Timer.builder("rag.stage.duration")
+                .tag("stage", stage.tag)
+                .tag("feature", feature.tag)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Records one LLM call; {@code usage} may be null when the provider did not report it. */
+    public void recordLlmCall(Feature feature, String model, long nanos, Usage usage, boolean success) {
+        Timer.builder("llm.call.duration")
+                .tag("feature", feature.tag)
+                .tag("model", model == null || model.isEmpty() ? "unknown" : model)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (usage != null) {
+            tokens(feature, "prompt").record(valueOf(usage.getPromptTokens()));
+            tokens(feature, "completion").record(valueOf(usage.getCompletionTokens()));
+        }
+    }
+
+    // Micrometer caches meters by id, so building on each call is a map lookup
+    private DistributionSummary tokens(Feature feature, String type) {
+        return DistributionSummary.builder("llm.tokens")
+                .baseUnit("tokens")
+                .tag("feature", feature.tag)
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static double valueOf(Integer tokens) {
+        return tokens == null ? 0 : tokens;
+    }
+}
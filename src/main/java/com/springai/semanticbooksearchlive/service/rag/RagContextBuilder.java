@@ -0,0 +1,179 @@
+package com.springai.semanticbooksearchlive.service.rag;
+
+import com.springai.semanticbooksearchlive.util.VectorUtils;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Assembles retrieved chunks into prompt context under a token budget.
+ * <p>
+ * Candidates are first de-duplicated (exact text, then near-duplicates by
+ * vector cosine or word-shingle overlap), then picked in maximal marginal
+ * relevance order: relevance comes from the {@code distance} metadata the
+ * repositories attach, redundancy from the stored vectors under
+ * {@link VectorUtils#EMBEDDING_METADATA_KEY}. Chunks are added until the next
+ * one would exceed the budget.
+ * </p>
+ */
+@Component
+public class RagContextBuilder {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final double SHINGLE_DUPLICATE_THRESHOLD = 0.8;
+
+    private final TokenCountEstimator tokenEstimator = new JTokkitTokenCountEstimator();
+    private final int defaultTokenBudget;
+    private final double mmrLambda;
+    private final double duplicateThreshold;
+
+    public record RagContext(String text, List<Document> documents, int tokens, int candidates) {
+        public boolean isEmpty() {
+            return text.isEmpty();
+        }
+    }
+
+    public RagContextBuilder(@Value("${rag.context.token-budget:1500}") int defaultTokenBudget,
+            @Value("${rag.context.mmr-lambda:0.7}") double mmrLambda,
+            @Value("${rag.context.duplicate-threshold:0.95}") double duplicateThreshold) {
+        this.defaultTokenBudget = defaultTokenBudget;
+        this.mmrLambda = mmrLambda;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    public RagContext build(List<Document> candidates) {
+        return build(candidates, defaultTokenBudget);
+    }
+
+    public RagContext build(List<Document> candidates, int tokenBudget) {
+        // 1. Exact duplicates (same normalised text), keeping the best-ranked copy
+        Map<String, Candidate> unique = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Document doc = candidates.get(i);
+            if (doc.getText() == null || doc.getText().isBlank()) {
+                continue;
+            }
+            unique.putIfAbsent(normalise(doc.getText()),
+                    new Candidate(doc, relevance(doc, i, candidates.size()), vector(doc), shingles(doc.getText())));
+        }
+
+        // 2. MMR selection with near-duplicate rejection, packed to the budget
+        List<Candidate> remaining = new ArrayList<>(unique.values());
+        List<Candidate> selected = new ArrayList<>();
+        int used = 0;
+        while (!remaining.isEmpty()) {
+            Candidate best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            double bestRedundancy = 0.0;
+            for (Candidate candidate : remaining) {
+                double redundancy = maxSimilarity(candidate, selected);
+                double score = mmrLambda * candidate.relevance() - (1 - mmrLambda) * redundancy;
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                    bestRedundancy = redundancy;
+                }
+            }
+            remaining.remove(best);
+
+            if (isNearDuplicate(best, selected, bestRedundancy)) {
+                continue;
+            }
+            int cost = tokenEstimator.estimate(best.document().getText());
+            if (used + cost > tokenBudget) {
+                // A smaller chunk further down may still fit
+                continue;
+            }
+            selected.add(best);
+            used += cost;
+        }
+
+        List<Document> documents = selected.stream().map(Candidate::document).collect(Collectors.toList());
+        String text = documents.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+        return new RagContext(text, documents, used, candidates.size());
+    }
+
+    private record Candidate(Document document, double relevance, float[] vector, Set<String> shingles) {
+    }
+
+    private double maxSimilarity(Candidate candidate, List<Candidate> selected) {
+        double max = 0.0;
+        for (Candidate other : selected) {
+            max = Math.max(max, similarity(candidate, other));
+        }
+        return max;
+    }
+
+    private double similarity(Candidate a, Candidate b) {
+        if (a.vector() != null && b.vector() != null) {
+            return VectorUtils.cosineSimilarity(a.vector(), b.vector());
+        }
+        return jaccard(a.shingles(), b.shingles());
+    }
+
+    private boolean isNearDuplicate(Candidate candidate, List<Candidate> selected, double redundancy) {
+        if (candidate.vector() != null && redundancy >= duplicateThreshold) {
+            return true;
+        }
+        // Overlapping chunks share long runs of words even when vectors differ
+        for (Candidate other : selected) {
+            if (jaccard(candidate.shingles(), other.shingles()) >= SHINGLE_DUPLICATE_THRESHOLD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double relevance(Document doc, int rank, int total) {
+        Object distance = doc.getMetadata().get("distance");
+        if (distance instanceof Number) {
+            return 1.0 - ((Number) distance).doubleValue();
+        }
+        // No distance (e.g. keyword hits): fall back to rank order
+        return 1.0 - (double) rank / Math.max(1, total);
+    }
+
+    private float[] vector(Document doc) {
+        Object value = doc.getMetadata().get(VectorUtils.EMBEDDING_METADATA_KEY);
+        return value instanceof float[] ? (float[]) value : null;
+    }
+
+    private Set<String> shingles(String text) {
+        String[] words = normalise(text).split(" ");
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + SHINGLE_SIZE <= words.length; i++) {
+            shingles.add(String.join(" ", Arrays.copyOfRange(words, i, i + SHINGLE_SIZE)));
+        }
+        return shingles;
+    }
+
+    private double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String s : smaller) {
+            if (larger.contains(s)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private String normalise(String text) {
+        return text.toLowerCase().replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,90 @@
+package com.springai.semanticbooksearchlive.service.search;
+
+import com.springai.semanticbooksearchlive.repository.HnswSearch;
+import com.springai.semanticbooksearchlive.repository.search.VectorQueryRepository;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingCircuitBreaker;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces;
+import com.springai.semanticbooksearchlive.service.embedding.EmbeddingSpaces.Space;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The vector leg of catalog search, shared by the compare and hybrid searches
+ * and the library chat.
+ * <p>
+ * The query is embedded first and the nearest-neighbour SQL then runs with
+ * the catalog's {@code hnsw.ef_search} (see {@link HnswSearch}), so the
+ * transaction carrying that setting never holds a connection across the
+ * provider call, and embedding and HNSW scan are timed separately. Searches
+ * run under the embedding circuit breaker's latency budget. Each search takes
+ * the read embedding space once, for both the query vector and the column.
+ * </p>
+ */
+@Service
+public class CatalogVectorSearch {
+
+    private final EmbeddingSpaces embeddingSpaces;
+    private final VectorQueryRepository vectorQueryRepository;
+    private final HnswSearch hnswSearch;
+    private final EmbeddingCircuitBreaker embeddingBreaker;
+
+    public CatalogVectorSearch(EmbeddingSpaces embeddingSpaces, VectorQueryRepository vectorQueryRepository,
+            HnswSearch hnswSearch, EmbeddingCircuitBreaker embeddingBreaker) {
+        this.embeddingSpaces = embeddingSpaces;
+        this.vectorQueryRepository = vectorQueryRepository;
+        this.hnswSearch = hnswSearch;
+        this.embeddingBreaker = embeddingBreaker;
+    }
+
+    /**
+     * @param genre    optional genre filter; null for all genres
+     * @param efSearch HNSW {@code ef_search} for this query; null for the
+     *                 configured default
+     * @return the nearest documents, or empty when the leg was skipped
+     *         (embedding provider unavailable or over budget)
+     */
+    public Optional<List<Document>> search(String query, int topK, String genre, Integer efSearch,
+            SearchProfiler profiler) {
+        Space space = embeddingSpaces.read();
+        AtomicReference<float[]> queryEmbedding = new AtomicReference<>();
+        Optional<List<Document>> documents = embeddingBreaker.withinBudget(() -> {
+            float[] embedding = profiler.time(StageMetrics.Stage.QUERY_EMBEDDING,
+                    () -> embeddingSpaces.embedQuery(space, query));
+            queryEmbedding.set(embedding);
+            return nearest(space, embedding, topK, genre, efSearch, profiler);
+        });
+
+        documents.ifPresent(docs -> profiler.candidates("vector", docs.size()));
+        // Outside the budget: EXPLAIN ANALYZE runs the query again
+        if (profiler.isExplain() && queryEmbedding.get() != null) {
+            profiler.vectorQueryPlan(hnswSearch.query(HnswSearch.Index.CATALOG, efSearch, space.scanLimit(topK),
+                    () -> vectorQueryRepository.explain(space, queryEmbedding.get(), topK, genre)));
+        }
+        return documents;
+    }
+
+    /**
+     * Unbudgeted search over the whole catalog, for grounding chat answers.
+     *
+     * @throws com.springai.semanticbooksearchlive.service.embedding.EmbeddingUnavailableException
+     *         while the embedding circuit breaker is open
+     */
+    public List<Document> search(String query, int topK, SearchProfiler profiler) {
+        Space space = embeddingSpaces.read();
+        float[] embedding = profiler.time(StageMetrics.Stage.QUERY_EMBEDDING,
+                () -> embeddingSpaces.embedQuery(space, query));
+        return nearest(space, embedding, topK, null, null, profiler);
+    }
+
+    private List<Document> nearest(Space space, float[] embedding, int topK, String genre, Integer efSearch,
+            SearchProfiler profiler) {
+        return profiler.time(StageMetrics.Stage.VECTOR_QUERY,
+                () -> hnswSearch.query(HnswSearch.Index.CATALOG, efSearch, space.scanLimit(topK),
+                        () -> vectorQueryRepository.search(space, embedding, topK, genre)));
+    }
+}
@@ -4,46 +4,77 @@ import com.springai.semanticbooksearchlive.model.Book;
 import com.springai.semanticbooksearchlive.model.HybridSearchResponse;
 import com.springai.semanticbooksearchlive.model.SearchResult;
 import com.springai.semanticbooksearchlive.repository.search.KeywordSearchRepository;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
 import com.springai.semanticbooksearchlive.util.RankFusionUtils;
+import com.springai.semanticbooksearchlive.util.TaskScope;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class HybridSearchService {
 
-    private final VectorStore vectorStore;
+    private final CatalogVectorSearch vectorSearch;
     private final KeywordSearchRepository keywordRepository;
+    private final StageMetrics stageMetrics;
 
-    public HybridSearchService(VectorStore vectorStore, KeywordSearchRepository keywordRepository) {
-        this.vectorStore = vectorStore;
+    public HybridSearchService(CatalogVectorSearch vectorSearch, KeywordSearchRepository keywordRepository,
+            StageMetrics stageMetrics) {
+        this.vectorSearch = vectorSearch;
         this.keywordRepository = keywordRepository;
+        this.stageMetrics = stageMetrics;
     }
 
     public HybridSearchResponse search(String query) {
-        // 1. Run Vector Search
-        List<Document> vectorDocs = vectorStore.similaritySearch(
-                SearchRequest.builder().query(query).topK(10).build());
+        return search(query, false, false, null);
+    }
+
+    /**
+     * @param profile  include per-stage timings and candidate counts in the response
+     * @param explain  with {@code profile}, also include the vector query plan
+     * @param efSearch HNSW {@code ef_search} for the vector leg; null for the
+     *                 configured default
+     */
+    public HybridSearchResponse search(String query, boolean profile, boolean explain, Integer efSearch) {
+        SearchProfiler profiler = new SearchProfiler(stageMetrics, StageMetrics.Feature.CATALOG, profile, explain);
 
-        // 2. Run Keyword Search
-        List<Document> keywordDocs = keywordRepository.search(query);
+        // 1 + 2. Vector and keyword search are independent, so they run side by side.
+        // The vector leg is skipped if the embedding provider is down or too slow.
+        Optional<List<Document>> vectorResult;
+        List<Document> keywordDocs;
+        try (TaskScope scope = new TaskScope()) {
+            TaskScope.Subtask<Optional<List<Document>>> vector = scope.fork(
+                    () -> vectorSearch.search(query, 10, null, efSearch, profiler));
+            TaskScope.Subtask<List<Document>> keyword = scope.fork(
+                    () -> profiler.time(StageMetrics.Stage.KEYWORD_SEARCH, () -> keywordRepository.search(query)));
+            scope.join().throwIfFailed();
+            vectorResult = vector.get();
+            keywordDocs = keyword.get();
+        }
+        boolean degraded = vectorResult.isEmpty();
+        List<Document> vectorDocs = vectorResult.orElse(List.of());
+        profiler.candidates("keyword", keywordDocs.size());
 
-        // 3. Fuse Results
-        List<Document> hybridDocs = RankFusionUtils.fuse(vectorDocs, keywordDocs);
+        // 3. Fuse Results (keyword ranking alone when degraded)
+        List<Document> hybridDocs = profiler.time(StageMetrics.Stage.RANK_FUSION,
+                () -> RankFusionUtils.fuse(vectorDocs, keywordDocs));
+        profiler.candidates("hybrid", hybridDocs.size());
 
         // 4. Convert to DTOs
         return new HybridSearchResponse(
                 mapToSearchResults(vectorDocs),
                 mapToSearchResults(keywordDocs),
-                mapToSearchResults(hybridDocs));
+                mapToSearchResults(hybridDocs),
+                degraded,
+                profiler.build());
     }
 
-    private List<SearchResult> mapToSearchResults(List<Document> documents) {
+    // Package-private for the JMH benchmarks
+    static List<SearchResult> mapToSearchResults(List<Document> documents) {
         return documents.stream()
                 .map(doc -> {
                     Map<String, Object> metadata = doc.getMetadata();
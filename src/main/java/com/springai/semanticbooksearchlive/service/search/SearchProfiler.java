@@ -0,0 +1,99 @@
+package com.springai.semanticbooksearchlive.service.search;
+
+import com.springai.semanticbooksearchlive.model.SearchProfile;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Times the stages of one search. Every stage always goes to
+ * {@link StageMetrics}; when profiling is on, the timings, per-leg candidate
+ * counts and the optional query plan are also kept for the response.
+ * <p>
+ * One instance per request. Recording is synchronized: the legs of a hybrid
+ * search record from their own threads, and a vector leg abandoned at the
+ * search budget may still record after the response has been assembled.
+ * </p>
+ */
+public class SearchProfiler {
+
+    // Top node of EXPLAIN (ANALYZE, BUFFERS) output carries the totals
+    private static final Pattern BUFFERS = Pattern.compile("Buffers: shared(?: hit=(\\d+))?(?: read=(\\d+))?");
+
+    private final StageMetrics stageMetrics;
+    private final StageMetrics.Feature feature;
+    private final boolean enabled;
+    private final boolean explain;
+    private final Map<String, Double> stageMillis = new LinkedHashMap<>();
+    private final Map<String, Integer> candidates = new LinkedHashMap<>();
+    private List<String> vectorQueryPlan;
+
+    /**
+     * @param enabled keep timings and counts for the response
+     * @param explain also capture the vector query plan (ignored unless enabled)
+     */
+    public SearchProfiler(StageMetrics stageMetrics, StageMetrics.Feature feature, boolean enabled, boolean explain) {
+        this.stageMetrics = stageMetrics;
+        this.feature = feature;
+        this.enabled = enabled;
+        this.explain = enabled && explain;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isExplain() {
+        return explain;
+    }
+
+    public <T> T time(StageMetrics.Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return stageMetrics.time(stage, feature, work);
+        } finally {
+            if (enabled) {
+                record(stage.tag(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    public synchronized void candidates(String leg, int count) {
+        candidates.put(leg, count);
+    }
+
+    public synchronized void vectorQueryPlan(List<String> plan) {
+        this.vectorQueryPlan = plan;
+    }
+
+    /** @return the profile, or null when profiling is off */
+    public synchronized SearchProfile build() {
+        if (!enabled) {
+            return null;
+        }
+        Long hits = null;
+        Long reads = null;
+        if (vectorQueryPlan != null) {
+            for (String line : vectorQueryPlan) {
+                Matcher matcher = BUFFERS.matcher(line);
+                if (matcher.find()) {
+                    hits = matcher.group(1) != null ? Long.parseLong(matcher.group(1)) : 0L;
+                    reads = matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : 0L;
+                    break;
+                }
+            }
+        }
+        return new SearchProfile(new LinkedHashMap<>(stageMillis), new LinkedHashMap<>(candidates), hits, reads,
+                vectorQueryPlan);
+    }
+
+    private synchronized void record(String stage, long nanos) {
+        // A stage can run more than once per request; report the total
+        stageMillis.merge(stage, nanos / 1_000_000.0, Double::sum);
+    }
+}
@@ -1,8 +1,10 @@
 package com.springai.semanticbooksearchlive.service.study;
 
+import com.springai.semanticbooksearchlive.advisor.SemanticCacheAdvisor;
 import com.springai.semanticbooksearchlive.model.StudyMaterial;
 import com.springai.semanticbooksearchlive.repository.study.StudyMaterialRepository;
 import com.springai.semanticbooksearchlive.repository.study.StudyMaterialVectorRepository;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
 import org.apache.tika.Tika;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
@@ -20,12 +22,17 @@ public class StudyMaterialService {
 
     private final StudyMaterialRepository studyMaterialRepository;
     private final StudyMaterialVectorRepository vectorRepository;
+    private final SemanticCacheAdvisor semanticCache;
+    private final StageMetrics stageMetrics;
     private final Tika tika;
 
     public StudyMaterialService(StudyMaterialRepository studyMaterialRepository,
-            StudyMaterialVectorRepository vectorRepository) {
+            StudyMaterialVectorRepository vectorRepository, SemanticCacheAdvisor semanticCache,
+            StageMetrics stageMetrics) {
         this.studyMaterialRepository = studyMaterialRepository;
         this.vectorRepository = vectorRepository;
+        this.semanticCache = semanticCache;
+        this.stageMetrics = stageMetrics;
         this.tika = new Tika();
     }
 
@@ -36,9 +43,14 @@ public class StudyMaterialService {
 
         if ("PDF".equals(type) || "PPT".equals(type) || "DOC".equals(type)) {
             // Tika Auto-Detection
+            long parseStart = System.nanoTime();
             try {
                 content = tika.parseToString(file.getInputStream());
+                stageMetrics.record(StageMetrics.Stage.DOCUMENT_PARSE, StageMetrics.Feature.STUDY_ROOM,
+                        System.nanoTime() - parseStart, true);
             } catch (Exception e) {
+                stageMetrics.record(StageMetrics.Stage.DOCUMENT_PARSE, StageMetrics.Feature.STUDY_ROOM,
+                        System.nanoTime() - parseStart, false);
                 throw new IOException("Failed to parse document content: " + e.getMessage(), e);
             }
         } else if ("IMAGE".equals(type)) {
@@ -57,7 +69,9 @@ public class StudyMaterialService {
 
         // 2. Vector Store Ingestion
         TokenTextSplitter splitter = new TokenTextSplitter();
-        List<Document> docs = splitter.split(new Document(content));
+        String text = content;
+        List<Document> docs = stageMetrics.time(StageMetrics.Stage.CHUNKING, StageMetrics.Feature.STUDY_ROOM,
+                () -> splitter.split(new Document(text)));
 
         // Add Metadata to each chunk
         for (Document doc : docs) {
@@ -69,6 +83,7 @@ public class StudyMaterialService {
         }
 
         vectorRepository.add(docs);
+        semanticCache.invalidate(SemanticCacheAdvisor.courseScope(courseId.toString()));
     }
 
     public List<StudyMaterial> getMaterialsForCourse(UUID courseId) {
@@ -1,6 +1,12 @@
 package com.springai.semanticbooksearchlive.service.study;
 
+import com.springai.semanticbooksearchlive.advisor.InsightAdvisor;
+import com.springai.semanticbooksearchlive.advisor.LlmSchedulerAdvisor;
+import com.springai.semanticbooksearchlive.advisor.SemanticCacheAdvisor;
 import com.springai.semanticbooksearchlive.repository.study.StudyMaterialVectorRepository;
+import com.springai.semanticbooksearchlive.service.llm.LlmCallScheduler;
+import com.springai.semanticbooksearchlive.service.metrics.StageMetrics;
+import com.springai.semanticbooksearchlive.service.rag.RagContextBuilder;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -9,16 +15,17 @@ import org.springframework.ai.document.Document;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class TeacherService {
 
         private final StudyMaterialVectorRepository vectorRepository;
         private final ChatClient chatClient;
+        private final RagContextBuilder contextBuilder;
 
         @Value("classpath:prompts/teacher-persona.st")
         private Resource teacherPromptResource;
@@ -29,42 +36,62 @@ public class TeacherService {
         @Value("classpath:prompts/flashcard-generator.st")
         private Resource flashcardPromptResource;
 
-        public TeacherService(StudyMaterialVectorRepository vectorRepository, ChatClient.Builder builder) {
+        public TeacherService(StudyMaterialVectorRepository vectorRepository, ChatClient.Builder builder,
+                        RagContextBuilder contextBuilder, SemanticCacheAdvisor semanticCache,
+                        LlmCallScheduler llmScheduler, StageMetrics stageMetrics) {
                 this.vectorRepository = vectorRepository;
-                this.chatClient = builder.build();
+                this.chatClient = builder
+                                .defaultAdvisors(new InsightAdvisor(stageMetrics, StageMetrics.Feature.STUDY_ROOM), semanticCache,
+                                                new LlmSchedulerAdvisor(llmScheduler, LlmCallScheduler.Feature.CHAT))
+                                .build();
+                this.contextBuilder = contextBuilder;
         }
 
         public String chat(String courseId, String message) {
+                return chatClient.prompt(chatPrompt(courseId, message))
+                                .advisors(a -> a.param(SemanticCacheAdvisor.SCOPE,
+                                                SemanticCacheAdvisor.courseScope(courseId)))
+                                .call()
+                                .content();
+        }
+
+        /** Streaming variant of {@link #chat(String, String)}. */
+        public Flux<String> chatStream(String courseId, String message) {
+                return chatClient.prompt(chatPrompt(courseId, message))
+                                .advisors(a -> a.param(SemanticCacheAdvisor.SCOPE,
+                                                SemanticCacheAdvisor.courseScope(courseId)))
+                                .stream()
+                                .content();
+        }
+
+        private Prompt chatPrompt(String courseId, String message) {
                 // 1. RAG: Retrieve context
                 List<Document> similarDocs = vectorRepository.similaritySearch(courseId, message);
-                String context = similarDocs.stream()
-                                .map(Document::getText)
-                                .collect(Collectors.joining("\n\n"));
+                String context = contextBuilder.build(similarDocs).text();
 
                 // 2. Prompt
                 SystemPromptTemplate systemPrompt = new SystemPromptTemplate(teacherPromptResource);
-                Prompt prompt = new Prompt(List.of(
+                return new Prompt(List.of(
                                 systemPrompt.createMessage(Map.of("context", context, "input", message)),
                                 new UserMessage(message)));
-
-                // 3. Response
-                return chatClient.prompt(prompt).call().content();
         }
 
         public String generateQuiz(String courseId, String topic) {
                 // 1. RAG: Retrieve wider context for quiz
                 // We might want to fetch more docs or generic search for topic
                 List<Document> similarDocs = vectorRepository.similaritySearch(courseId, topic);
-                String context = similarDocs.stream()
-                                .map(Document::getText)
-                                .collect(Collectors.joining("\n\n"));
+                String context = contextBuilder.build(similarDocs).text();
 
                 SystemPromptTemplate systemPrompt = new SystemPromptTemplate(quizPromptResource);
                 Prompt prompt = new Prompt(List.of(
                                 systemPrompt.createMessage(
                                                 Map.of("context", context, "topic", topic, "num_questions", 5))));
 
-                return chatClient.prompt(prompt).call().content();
+                return chatClient.prompt(prompt)
+                                .advisors(a -> a.param(LlmSchedulerAdvisor.FEATURE,
+                                                LlmCallScheduler.Feature.STUDY_TOOLS))
+                                .call()
+                                .content();
         }
 
         public String generateFlashcards(String courseId) {
@@ -72,14 +99,16 @@ public class TeacherService {
                 // For now, let's search for "summary key concepts"
                 List<Document> similarDocs = vectorRepository.similaritySearch(courseId,
                                 "important definitions and concepts");
-                String context = similarDocs.stream()
-                                .map(Document::getText)
-                                .collect(Collectors.joining("\n\n"));
+                String context = contextBuilder.build(similarDocs).text();
 
                 SystemPromptTemplate systemPrompt = new SystemPromptTemplate(flashcardPromptResource);
                 Prompt prompt = new Prompt(List.of(
                                 systemPrompt.createMessage(Map.of("context", context))));
 
-                return chatClient.prompt(prompt).call().content();
+                return chatClient.prompt(prompt)
+                                .advisors(a -> a.param(LlmSchedulerAdvisor.FEATURE,
+                                                LlmCallScheduler.Feature.STUDY_TOOLS))
+                                .call()
+                                .content();
         }
 }
@@ -0,0 +1,116 @@
+package com.springai.semanticbooksearchlive.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Structured concurrency for the independent sub-calls of one request.
+ * <p>
+ * Same shape as the JDK's {@code StructuredTaskScope.ShutdownOnFailure},
+ * which is still a preview API on Java 21: every {@link #fork forked} task
+ * runs in its own virtual thread, the first failure cancels its siblings, and
+ * {@link #close()} does not return before every task has finished, so no
+ * sub-call outlives the block that forked it.
+ * </p>
+ *
+ * <pre>
+ * try (TaskScope scope = new TaskScope()) {
+ *     TaskScope.Subtask&lt;A&gt; a = scope.fork(() -&gt; ...);
+ *     TaskScope.Subtask&lt;B&gt; b = scope.fork(() -&gt; ...);
+ *     scope.join().throwIfFailed();
+ *     return combine(a.get(), b.get());
+ * }
+ * </pre>
+ */
+public final class TaskScope implements AutoCloseable {
+
+    /** Handle to a forked task; read it after {@link #join()}. */
+    public static final class Subtask<T> {
+        private final Future<T> future;
+
+        private Subtask(Future<T> future) {
+            this.future = future;
+        }
+
+        /** @throws IllegalStateException if the task did not complete successfully */
+        public T get() {
+            return future.resultNow();
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Future<?>> forked = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public <T> Subtask<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return task.call();
+            } catch (Exception | Error e) {
+                if (failure.compareAndSet(null, e)) {
+                    cancelAll();
+                }
+                throw e;
+            }
+        });
+        forked.add(future);
+        if (failure.get() != null) {
+            future.cancel(true);
+        }
+        return new Subtask<>(future);
+    }
+
+    /** Waits until every task has finished or the first one has failed. */
+    public TaskScope join() {
+        for (Future<?> future : forked) {
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                // Reported by throwIfFailed(); siblings are cancelled already
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for subtasks");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Rethrows the first failure. Unchecked exceptions keep their type, so
+     * callers and exception handlers see what the sub-call threw.
+     */
+    public void throwIfFailed() {
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        if (e != null) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /** Cancels whatever is still running and waits for it to stop. */
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private void cancelAll() {
+        for (Future<?> future : forked) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.springai.semanticbooksearchlive.util;
+
+/**
+ * Helpers for working with pgvector values on the Java side.
+ */
+public class VectorUtils {
+
+    /** Metadata key under which repositories attach a chunk's stored vector. */
+    public static final String EMBEDDING_METADATA_KEY = "embedding";
+
+    /**
+     * Parses pgvector's text form {@code [0.1,0.2,...]} without regex or boxing.
+     */
+    public static float[] parseVector(String text) {
+        if (text == null) {
+            return null;
+        }
+        int start = text.indexOf('[') + 1;
+        int end = text.lastIndexOf(']');
+        if (end <= start) {
+            return new float[0];
+        }
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] vector = new float[count];
+        int index = 0;
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ',') {
+                vector[index++] = Float.parseFloat(text.substring(tokenStart, i).trim());
+                tokenStart = i + 1;
+            }
+        }
+        return vector;
+    }
+
+    public static double cosineSimilarity(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -0,0 +1,124 @@
+-- Baseline schema. Migrations run once each and never drop data; databases
+-- created by the former schema.sql are baselined at version 0, so every
+-- statement here must also be a no-op on such a database.
+--
+-- Vector columns are not created here: each embedding space adds its own
+-- column at its configured dimension, and builds its HNSW indexes, at startup
+-- (see EmbeddingSpaces).
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS books (
+    id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+    title text NOT NULL,
+    author text,
+    summary text,
+    genre text,
+    publication_year int,
+    image_url text,
+    has_content boolean DEFAULT false,
+    table_of_contents text[],
+    text_url text
+);
+
+CREATE TABLE IF NOT EXISTS vector_store (
+	id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+	content text,
+	metadata json
+);
+
+ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS content_search tsvector GENERATED ALWAYS AS (to_tsvector('english', content)) STORED;
+
+-- Catalog provider sync state: books already synced and when each page was last fetched
+CREATE TABLE IF NOT EXISTS provider_synced_books (
+    provider text NOT NULL,
+    book_id text NOT NULL,
+    synced_at timestamp DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (provider, book_id)
+);
+
+CREATE TABLE IF NOT EXISTS provider_page_state (
+    provider text NOT NULL,
+    page int NOT NULL,
+    synced_at timestamp DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (provider, page)
+);
+
+-- Content fingerprint per indexed book, so re-indexing only embeds what changed
+CREATE TABLE IF NOT EXISTS book_index_state (
+    book_id text PRIMARY KEY,
+    vector_id text NOT NULL,
+    fingerprint text NOT NULL,
+    indexed_at timestamp DEFAULT CURRENT_TIMESTAMP
+);
+
+-- TALK TO BOOK FEATURE --
+-- Separate table for storing detailed book content chunks
+CREATE TABLE IF NOT EXISTS book_content_vector_store (
+	id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+	content text,
+	metadata json
+);
+
+-- Chapter-level vectors (one per chapter, centroid of its chunk vectors)
+-- Used to pick the best chapters first and then rank only their chunks
+CREATE TABLE IF NOT EXISTS book_chapter_vector_store (
+	id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+	content text,
+	metadata json -- Must contain 'book_id', 'chapter_id' and 'chapter_title'
+);
+
+-- STUDY ROOM FEATURE --
+CREATE TABLE IF NOT EXISTS courses (
+    id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+    name text NOT NULL,
+    description text
+);
+
+-- Separate vector store for study materials (strictly scoped by course)
+CREATE TABLE IF NOT EXISTS study_material_vector_store (
+	id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+	content text,
+	metadata json
+);
+
+-- Study Material Metadata Table (for listing files in a course)
+CREATE TABLE IF NOT EXISTS study_materials (
+    id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+    course_id uuid NOT NULL REFERENCES courses(id),
+    filename text NOT NULL,
+    type text NOT NULL,
+    upload_date timestamp DEFAULT CURRENT_TIMESTAMP
+);
+
+-- STANDALONE DEBATE FEATURE --
+-- Table for ad-hoc file uploads
+CREATE TABLE IF NOT EXISTS debate_vector_store (
+	id uuid DEFAULT gen_random_uuid() PRIMARY KEY,
+	content text,
+	metadata json -- Must contain 'session_id' and 'file_label'
+);
+
+-- CHAT MEMORY --
+-- Persistent tier for per-conversation chat memory
+CREATE TABLE IF NOT EXISTS chat_memory (
+    conversation_id text NOT NULL,
+    seq int NOT NULL,
+    message_type text NOT NULL,
+    content text,
+    created_at timestamp DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (conversation_id, seq)
+);
+
+-- EMBEDDING SPACES --
+-- Which embedding space reads use, the one being migrated to and the one read
+-- before the last switch-over, plus the backfill lease
+CREATE TABLE IF NOT EXISTS embedding_space_state (
+    id boolean PRIMARY KEY DEFAULT true CHECK (id),
+    read_space text NOT NULL,
+    target_space text,
+    previous_space text,
+    backfill_owner text,
+    backfill_until timestamp,
+    updated_at timestamp DEFAULT CURRENT_TIMESTAMP
+);
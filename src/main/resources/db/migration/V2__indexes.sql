@@ -0,0 +1,14 @@
+-- Built concurrently, so writes are not blocked on a populated database. Flyway
+-- runs a script made only of such statements outside a transaction.
+-- HNSW indexes belong to the embedding spaces and are built at startup.
+
+-- Catalog de-duplication key, also the conflict target for bulk upserts
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_books_title ON books (title);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vector_store_content_search ON vector_store USING GIN (content_search);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_content_vector_store_chapter
+    ON book_content_vector_store ((metadata->>'book_id'), (metadata->>'chapter_id'));
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_chapter_vector_store_book
+    ON book_chapter_vector_store ((metadata->>'book_id'));
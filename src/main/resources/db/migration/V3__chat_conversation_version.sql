@@ -0,0 +1,9 @@
+-- Version per conversation for optimistic concurrency on chat_memory: every
+-- write bumps it, instances check it before serving cached history, and a
+-- replace based on an older version is rejected instead of overwriting turns
+-- another instance wrote meanwhile.
+CREATE TABLE IF NOT EXISTS chat_conversation (
+    conversation_id text PRIMARY KEY,
+    version bigint NOT NULL,
+    updated_at timestamp DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,224 @@
+package com.springai.semanticbooksearchlive.service.book;
+
+import com.springai.semanticbooksearchlive.model.Book;
+import com.springai.semanticbooksearchlive.repository.ProviderSyncStateRepository;
+import com.springai.semanticbooksearchlive.service.book.provider.GutendexBookProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link CatalogSyncService} with the real {@link GutendexBookProvider} against
+ * a stub Gutendex served by the JDK HTTP server, and sync state kept in memory.
+ */
+class CatalogSyncServiceTest {
+
+    private static final int PAGES = 3;
+
+    private HttpServer server;
+    private final Map<Integer, List<Integer>> catalog = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long responseDelayMs;
+
+    private final InMemorySyncState syncState = new InMemorySyncState();
+    private final List<Book> stored = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        // Ten books per page, Gutenberg ids 1..30
+        for (int page = 1; page <= PAGES; page++) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {
+                ids.add((page - 1) * 10 + i);
+            }
+            catalog.put(page, ids);
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/books", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesAFailingPageOnItsOwn() {
+        failuresLeft.put(2, new AtomicInteger(2));
+
+        CatalogSyncService.SyncResult result = service(3, 24).sync(provider(), stored::addAll);
+
+        assertThat(result.pagesFetched()).isEqualTo(PAGES);
+        assertThat(result.pagesFailed()).isZero();
+        assertThat(result.newBooks()).isEqualTo(30);
+        assertThat(requests.get(2)).hasValue(3);
+        assertThat(requests.get(1)).hasValue(1);
+        assertThat(requests.get(3)).hasValue(1);
+        assertThat(syncState.pages.keySet()).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    void leavesAPageThatKeepsFailingForTheNextSync() {
+        failuresLeft.put(2, new AtomicInteger(100));
+
+        CatalogSyncService.SyncResult first = service(3, 24).sync(provider(), stored::addAll);
+
+        assertThat(first.pagesFailed()).isEqualTo(1);
+        assertThat(first.newBooks()).isEqualTo(20);
+        assertThat(syncState.pages.keySet()).containsExactlyInAnyOrder(1, 3);
+
+        failuresLeft.get(2).set(0);
+        CatalogSyncService.SyncResult second = service(3, 24).sync(provider(), stored::addAll);
+
+        // Only the failed page is fetched again; the others are within their TTL
+        assertThat(second.pagesSkipped()).isEqualTo(2);
+        assertThat(second.pagesFetched()).isEqualTo(1);
+        assertThat(second.newBooks()).isEqualTo(10);
+        assertThat(stored).hasSize(30);
+    }
+
+    @Test
+    void emitsOnlyBooksNotSyncedBefore() {
+        service(3, 24).sync(provider(), stored::addAll);
+        stored.clear();
+
+        // A new book appears on page 2; a zero TTL refetches every page
+        catalog.get(2).add(99);
+        CatalogSyncService.SyncResult result = service(3, 0).sync(provider(), stored::addAll);
+
+        assertThat(result.pagesFetched()).isEqualTo(PAGES);
+        assertThat(result.newBooks()).isEqualTo(1);
+        assertThat(stored).hasSize(1);
+        assertThat(syncState.books).hasSize(31);
+    }
+
+    @Test
+    void fetchesPagesConcurrentlyWithinTheLimit() {
+        for (int page = PAGES + 1; page <= 8; page++) {
+            catalog.put(page, List.of(page * 100));
+        }
+        responseDelayMs = 100;
+
+        CatalogSyncService.SyncResult result = new CatalogSyncService(syncState, 2, 0, 0, 1, 24)
+                .sync(provider(8), stored::addAll);
+
+        assertThat(result.pagesFetched()).isEqualTo(8);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    private CatalogSyncService service(int maxConcurrency, long pageTtlHours) {
+        return new CatalogSyncService(syncState, maxConcurrency, 0, 3, 1, pageTtlHours);
+    }
+
+    private GutendexBookProvider provider() {
+        return provider(PAGES);
+    }
+
+    private GutendexBookProvider provider(int maxPages) {
+        return new GutendexBookProvider(RestClient.builder(),
+                "http://localhost:" + server.getAddress().getPort(), maxPages);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int page = Integer.parseInt(exchange.getRequestURI().getQuery().replace("page=", ""));
+        requests.computeIfAbsent(page, p -> new AtomicInteger()).incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            if (responseDelayMs > 0) {
+                Thread.sleep(responseDelayMs);
+            }
+            AtomicInteger failures = failuresLeft.get(page);
+            if (failures != null && failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                respond(exchange, 503, "{}");
+            } else if (!catalog.containsKey(page)) {
+                respond(exchange, 404, "{\"detail\":\"Invalid page.\"}");
+            } else {
+                respond(exchange, 200, pageJson(page));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String pageJson(int page) {
+        String next = catalog.containsKey(page + 1) ? "\"http://stub/books?page=" + (page + 1) + "\"" : "null";
+        List<String> books = catalog.get(page).stream()
+                .map(id -> "{\"id\":" + id + ",\"title\":\"Book " + id + "\",\"authors\":[{\"name\":\"Author\"}],"
+                        + "\"subjects\":[\"Fiction\"],\"summaries\":[],\"formats\":{}}")
+                .toList();
+        return "{\"next\":" + next + ",\"results\":[" + String.join(",", books) + "]}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** Sync state of a single provider, without a database. */
+    private static class InMemorySyncState extends ProviderSyncStateRepository {
+
+        final Set<String> books = ConcurrentHashMap.newKeySet();
+        final Map<Integer, Instant> pages = new ConcurrentHashMap<>();
+
+        InMemorySyncState() {
+            super(null);
+        }
+
+        @Override
+        public Set<String> findSyncedBookIds(String provider) {
+            return new HashSet<>(books);
+        }
+
+        @Override
+        public Set<Integer> findPagesSyncedWithin(String provider, Duration maxAge) {
+            Instant since = Instant.now().minus(maxAge);
+            Set<Integer> fresh = new HashSet<>();
+            pages.forEach((page, syncedAt) -> {
+                if (syncedAt.isAfter(since)) {
+                    fresh.add(page);
+                }
+            });
+            return fresh;
+        }
+
+        @Override
+        public void markPageSynced(String provider, int page, Collection<String> bookIds) {
+            books.addAll(bookIds);
+            pages.put(page, Instant.now());
+        }
+    }
+}
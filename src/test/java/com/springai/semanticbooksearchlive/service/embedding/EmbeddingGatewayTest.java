@@ -0,0 +1,196 @@
+package com.springai.semanticbooksearchlive.service.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link EmbeddingGateway} in front of a fake provider that answers with a
+ * 429 whenever the test tells it to.
+ */
+class EmbeddingGatewayTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmbeddingCircuitBreaker breaker = new EmbeddingCircuitBreaker(meterRegistry, 20, 5, 0.5, 2000,
+            30000, 800);
+    private final ThrottlingModel provider = new ThrottlingModel();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Held for the test's duration: the gateway's gauges only keep a weak reference to it
+    private EmbeddingGateway gateway;
+
+    @AfterEach
+    void shutdown() {
+        provider.release.countDown();
+        executor.shutdownNow();
+        breaker.shutdown();
+    }
+
+    @Test
+    void retriesAThrottledCallAfterBackingOff() {
+        gateway = gateway(properties(3000, 1_000_000, 4, 4, 100));
+        provider.throttleNext.set(2);
+
+        long start = System.nanoTime();
+        float[] vector = gateway.embed("a question");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(vector).hasSize(ThrottlingModel.DIMENSIONS);
+        assertThat(provider.calls).hasValue(3);
+        // Two jittered backoffs of at least half the throttled base delay each
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(100);
+        assertThat(meterRegistry.get("embedding.gateway.throttled").counter().count()).isEqualTo(2);
+        // Halved on each 429 (4 -> 2 -> 1), then raised by one success
+        assertThat(meterRegistry.get("embedding.gateway.concurrency.limit").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void givesUpOnAQueryAfterItsRetries() {
+        gateway = gateway(properties(3000, 1_000_000, 4, 4, 10));
+        provider.throttleNext.set(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> gateway.embed("a question")).hasMessageContaining("429");
+        // One attempt plus query-max-retries
+        assertThat(provider.calls).hasValue(3);
+    }
+
+    @Test
+    void waitsForTheRequestBudgetToRefill() {
+        // 60 requests per minute: the bucket starts full, then refills one per second
+        gateway = gateway(properties(60, 1_000_000, 4, 4, 10));
+        for (int i = 0; i < 60; i++) {
+            gateway.embed("question " + i);
+        }
+
+        long start = System.nanoTime();
+        gateway.embed("one more");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(500);
+        assertThat(provider.calls).hasValue(61);
+    }
+
+    @Test
+    void waitsForTheTokenBudgetToRefill() {
+        String large = "word ".repeat(600);
+        int largeTokens = new JTokkitTokenCountEstimator().estimate(large);
+        // The large text takes the whole minute's budget, which refills at largeTokens / 60 per second
+        gateway = gateway(properties(3000, largeTokens, 4, 4, 10));
+        gateway.embed(large);
+
+        String small = "word ".repeat(largeTokens / 60);
+        long start = System.nanoTime();
+        gateway.embed(small);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(500);
+    }
+
+    @Test
+    void queriesOvertakeWaitingBulkWork() throws Exception {
+        // Two slots, one of them reserved for queries: bulk runs one call at a time
+        gateway = gateway(properties(3000, 1_000_000, 2, 2, 10));
+
+        CompletableFuture<float[]> firstBulk = CompletableFuture.supplyAsync(
+                () -> EmbeddingGateway.bulk(() -> gateway.embed("blocking bulk 1")), executor);
+        awaitStarted("blocking bulk 1");
+        CompletableFuture<float[]> secondBulk = CompletableFuture.supplyAsync(
+                () -> EmbeddingGateway.bulk(() -> gateway.embed("blocking bulk 2")), executor);
+
+        // The query takes the reserved slot while the second bulk call still waits for one
+        float[] query = CompletableFuture.supplyAsync(() -> gateway.embed("a question"), executor)
+                .get(5, TimeUnit.SECONDS);
+        assertThat(query).hasSize(ThrottlingModel.DIMENSIONS);
+        assertThat(provider.started).containsExactly("blocking bulk 1", "a question");
+        assertThat(secondBulk).isNotDone();
+
+        provider.release.countDown();
+        firstBulk.get(5, TimeUnit.SECONDS);
+        secondBulk.get(5, TimeUnit.SECONDS);
+        assertThat(provider.started).containsExactly("blocking bulk 1", "a question", "blocking bulk 2");
+    }
+
+    private void awaitStarted(String text) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!provider.started.contains(text)) {
+            assertThat(System.nanoTime()).as("waiting for " + text).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private EmbeddingGateway gateway(EmbeddingGatewayProperties properties) {
+        return new EmbeddingGateway(provider, properties, breaker, meterRegistry);
+    }
+
+    private static EmbeddingGatewayProperties properties(int requestsPerMinute, int tokensPerMinute,
+            int initialConcurrency, int maxConcurrency, long throttledBackoffMs) {
+        return new EmbeddingGatewayProperties(requestsPerMinute, tokensPerMinute, initialConcurrency, 1,
+                maxConcurrency, 1500, 1, 0, 2, 6, 10, throttledBackoffMs, 1000, 512, 100_000);
+    }
+
+    /**
+     * Answers with a 429 for the next {@code throttleNext} calls; texts starting
+     * with "blocking" wait for {@code release}.
+     */
+    private static class ThrottlingModel implements EmbeddingModel {
+
+        static final int DIMENSIONS = 8;
+
+        final AtomicInteger throttleNext = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            calls.incrementAndGet();
+            if (throttleNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                // Same shape as the OpenAI client's error for HTTP 429
+                throw new NonTransientAiException("HTTP 429 - rate_limit_exceeded: throttled by the test");
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                started.add(text);
+                if (text.startsWith("blocking")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }
+                embeddings.add(new Embedding(new float[DIMENSIONS], embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}